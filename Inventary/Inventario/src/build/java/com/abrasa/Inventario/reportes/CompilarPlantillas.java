@@ -0,0 +1,39 @@
+package com.abrasa.Inventario.reportes;
+
+import net.sf.jasperreports.engine.JasperCompileManager;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.File;
+
+/**
+ * Paso del build (exec-maven-plugin en process-classes): compila cada .jrxml
+ * del directorio de origen a un .jasper en el de destino, para que la
+ * aplicación no tenga que compilar plantillas al imprimir. Está en src/build/java:
+ * se compila aparte, solo para el build, y no viaja en el WAR.
+ *
+ * Uso: CompilarPlantillas directorioJrxml directorioJasper
+ */
+public class CompilarPlantillas {
+
+    private static final Log log = LogFactory.getLog(CompilarPlantillas.class);
+
+    public static void main(String[] args) throws Exception {
+        File origen = new File(args[0]);
+        File destino = new File(args[1]);
+        destino.mkdirs();
+
+        File[] disenos = origen.listFiles((directorio, nombre) -> nombre.endsWith(".jrxml"));
+        if (disenos == null) {
+            return;
+        }
+        for (File diseno : disenos) {
+            File compilado = new File(destino, diseno.getName().replaceFirst("\\.jrxml$", ".jasper"));
+            if (compilado.lastModified() >= diseno.lastModified()) {
+                continue;
+            }
+            JasperCompileManager.compileReportToFile(diseno.getPath(), compilado.getPath());
+            log.info("Compilado " + compilado.getName());
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.abrasa.Inventario.web;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.jasper.JspC;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Paso del build (exec-maven-plugin en prepare-package): compila las JSP de
+ * OpenXava y NaviOX a servlets con el JspC del mismo Tomcat que las ejecuta, para
+ * que Jasper no tenga que compilar cada pantalla la primera vez que se abre.
+ *
+ * Las páginas se toman del META-INF/resources del jar de OpenXava (desempaquetado
+ * por maven-dependency-plugin) con src/main/webapp encima, que manda igual que en
+ * el WAR. Las que solo se usan en un include estático (imports.jsp y similares) no
+ * compilan solas y se dejan fuera. Deja las clases en destino/WEB-INF/classes y el
+ * web.xml de la aplicación con un servlet y su mapeo por página en destino/WEB-INF.
+ * Como CompilarPlantillas, está en src/build/java y no viaja en el WAR.
+ *
+ * Uso: CompilarJsp directorioJspOpenXava directorioWebapp directorioDestino
+ */
+public class CompilarJsp {
+
+    private static final Log log = LogFactory.getLog(CompilarJsp.class);
+
+    private static final Pattern INCLUDE_ESTATICO = Pattern.compile(
+            "<(?:%@\\s*include|jsp:directive\\.include)\\s+file\\s*=\\s*\"([^\"]+)\"");
+
+    public static void main(String[] args) throws Exception {
+        Path raiz = Paths.get(args[0]).toAbsolutePath();
+        Path webapp = Paths.get(args[1]).toAbsolutePath();
+        Path destino = Paths.get(args[2]).toAbsolutePath();
+        Path clases = destino.resolve("WEB-INF/classes");
+        Files.createDirectories(clases);
+
+        copiar(webapp, raiz);
+        List<Path> jsp;
+        try (Stream<Path> archivos = Files.walk(raiz)) {
+            jsp = archivos.filter(archivo -> archivo.toString().endsWith(".jsp")).collect(Collectors.toList());
+        }
+        Set<Path> incluidas = incluidas(raiz, jsp);
+        List<String> paginas = new ArrayList<>();
+        for (Path archivo : jsp) {
+            if (!incluidas.contains(archivo)) {
+                paginas.add(raiz.relativize(archivo).toString());
+            }
+        }
+
+        JspC jspc = new JspC();
+        jspc.setUriroot(raiz.toString());
+        jspc.setJspFiles(String.join(",", paginas));
+        jspc.setOutputDir(clases.toString());
+        jspc.setCompile(true);
+        jspc.setCompilerSourceVM("1.8");
+        jspc.setCompilerTargetVM("1.8");
+        jspc.setJavaEncoding(StandardCharsets.UTF_8.name());
+        // El fragmento con los servlets se mezcla en el WEB-INF/web.xml de la raíz
+        jspc.setWebXmlInclude(raiz.resolve("WEB-INF/servlets-jsp.xml").toString());
+        jspc.setAddWebXmlMappings(true);
+        jspc.execute();
+
+        Files.copy(raiz.resolve("WEB-INF/web.xml"), destino.resolve("WEB-INF/web.xml"),
+                StandardCopyOption.REPLACE_EXISTING);
+        // Tomcat solo necesita las clases
+        try (Stream<Path> archivos = Files.walk(clases)) {
+            for (Path fuente : archivos.filter(archivo -> archivo.toString().endsWith(".java"))
+                    .collect(Collectors.toList())) {
+                Files.delete(fuente);
+            }
+        }
+        log.info("Compiladas " + paginas.size() + " JSP (" + (jsp.size() - paginas.size())
+                + " fragmentos de include estático sin compilar)");
+    }
+
+    private static Set<Path> incluidas(Path raiz, List<Path> jsp) throws IOException {
+        Set<Path> incluidas = new HashSet<>();
+        for (Path archivo : jsp) {
+            String contenido = new String(Files.readAllBytes(archivo), StandardCharsets.ISO_8859_1);
+            Matcher include = INCLUDE_ESTATICO.matcher(contenido);
+            while (include.find()) {
+                String ruta = include.group(1);
+                Path incluida = ruta.startsWith("/") ? raiz.resolve(ruta.substring(1)) : archivo.resolveSibling(ruta);
+                incluidas.add(incluida.normalize());
+            }
+        }
+        return incluidas;
+    }
+
+    private static void copiar(Path origen, Path destino) throws IOException {
+        try (Stream<Path> archivos = Files.walk(origen)) {
+            for (Path archivo : archivos.collect(Collectors.toList())) {
+                Path copia = destino.resolve(origen.relativize(archivo).toString());
+                if (Files.isDirectory(archivo)) {
+                    Files.createDirectories(copia);
+                }
+                else {
+                    Files.copy(archivo, copia, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.abrasa.Inventario.acciones;
+
+import com.abrasa.Inventario.modelo.Producto;
+import com.abrasa.Inventario.pruebas.BaseDatosPruebas;
+import com.abrasa.Inventario.reportes.FilaReporteProducto;
+import org.openjdk.jmh.annotations.*;
+import org.openxava.jpa.XPersistence;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Datos del catálogo de productos: cargar las entidades completas contra la
+ * proyección por constructor que usa PrintReporteProductoAction.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class CargaProductoBenchmark {
+
+    @Param({ "1000", "10000" })
+    public int productos;
+
+    @Setup(Level.Trial)
+    public void prepararBase() throws Exception {
+        BaseDatosPruebas.iniciar();
+        BaseDatosPruebas.cargarProductos(productos);
+    }
+
+    @Setup(Level.Iteration)
+    public void prepararHilo() {
+        BaseDatosPruebas.usarEnEsteHilo();
+    }
+
+    @TearDown(Level.Invocation)
+    public void cerrarSesion() {
+        // commit() cierra el manager; reset() además borraría las propiedades de la unidad
+        XPersistence.commit();
+    }
+
+    @Benchmark
+    public List<Producto> entidades() {
+        return XPersistence.getManager()
+                .createQuery("select p from Producto p where p.activo = true order by p.nombre", Producto.class)
+                .getResultList();
+    }
+
+    @Benchmark
+    public List<FilaReporteProducto> proyeccion() {
+        return PrintReporteProductoAction.consultarProductos();
+    }
+}
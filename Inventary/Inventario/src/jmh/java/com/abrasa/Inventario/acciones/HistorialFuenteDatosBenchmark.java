@@ -0,0 +1,90 @@
+package com.abrasa.Inventario.acciones;
+
+import com.abrasa.Inventario.pruebas.BaseDatosPruebas;
+import com.abrasa.Inventario.reportes.FuenteDatosDesplazable;
+import net.sf.jasperreports.engine.JRDataSource;
+import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.JRField;
+import net.sf.jasperreports.engine.data.JRBeanCollectionDataSource;
+import net.sf.jasperreports.engine.design.JRDesignField;
+import org.hibernate.Session;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openxava.jpa.XPersistence;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recorrer el historial de movimientos como lo hace Jasper: la lista completa en
+ * un JRBeanCollectionDataSource contra la FuenteDatosDesplazable de
+ * PrintHistorialMovimientosAction. Para ver la diferencia de memoria, ejecutar
+ * con -prof gc.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class HistorialFuenteDatosBenchmark {
+
+    private static final int PRODUCTOS = 200;
+
+    // Los campos que imprime HistorialMovimientos.jrxml
+    private static final JRField[] CAMPOS = {
+            campo("fecha"), campo("tipoMovimiento"), campo("cantidad"),
+            campo("producto.codigo"), campo("producto.nombre"), campo("proveedor.nombreComercial")
+    };
+
+    @Param({ "10000", "100000", "1000000" })
+    public int movimientos;
+
+    @Setup(Level.Trial)
+    public void prepararBase() throws Exception {
+        BaseDatosPruebas.iniciar();
+        BaseDatosPruebas.cargarProductos(PRODUCTOS);
+        BaseDatosPruebas.cargarMovimientos(movimientos, PRODUCTOS);
+    }
+
+    @Setup(Level.Iteration)
+    public void prepararHilo() {
+        BaseDatosPruebas.usarEnEsteHilo();
+    }
+
+    @TearDown(Level.Invocation)
+    public void cerrarSesion() {
+        // commit() cierra el manager; reset() además borraría las propiedades de la unidad
+        XPersistence.commit();
+    }
+
+    @Benchmark
+    public void listaEnMemoria(Blackhole agujero) throws JRException {
+        Session sesion = XPersistence.getManager().unwrap(Session.class);
+        recorrer(new JRBeanCollectionDataSource(
+                PrintHistorialMovimientosAction.crearConsulta(sesion, Collections.emptyMap()).getResultList()), agujero);
+    }
+
+    @Benchmark
+    public void desplazable(Blackhole agujero) throws JRException {
+        Session sesion = XPersistence.getManager().unwrap(Session.class);
+        try (FuenteDatosDesplazable fuente = new FuenteDatosDesplazable(sesion,
+                PrintHistorialMovimientosAction.crearConsulta(sesion, Collections.emptyMap()))) {
+            recorrer(fuente, agujero);
+        }
+    }
+
+    private static void recorrer(JRDataSource fuente, Blackhole agujero) throws JRException {
+        while (fuente.next()) {
+            for (JRField campo : CAMPOS) {
+                agujero.consume(fuente.getFieldValue(campo));
+            }
+        }
+    }
+
+    private static JRField campo(String nombre) {
+        JRDesignField campo = new JRDesignField();
+        campo.setName(nombre);
+        return campo;
+    }
+}
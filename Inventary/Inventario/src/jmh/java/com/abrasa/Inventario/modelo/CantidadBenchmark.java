@@ -0,0 +1,63 @@
+package com.abrasa.Inventario.modelo;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aritmética de cantidades: el redondeo a 2 decimales que hace Movimiento antes
+ * de tocar el stock y la suma sobre el stock, con y sin redondear antes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CantidadBenchmark {
+
+    private static final int VALORES = 1024;
+
+    private final BigDecimal[] cantidades = new BigDecimal[VALORES];
+    private final BigDecimal[] cantidadesRedondeadas = new BigDecimal[VALORES];
+    private BigDecimal stock;
+    private int indice;
+
+    @Setup(Level.Trial)
+    public void prepararCantidades() {
+        Random azar = new Random(42);
+        for (int i = 0; i < VALORES; i++) {
+            // Como llegan de la vista o de una importación: entre 0 y 4 decimales
+            cantidades[i] = BigDecimal.valueOf(azar.nextInt(1_000_000), azar.nextInt(5));
+            cantidadesRedondeadas[i] = cantidades[i].setScale(2, BigDecimal.ROUND_HALF_UP);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void reiniciarStock() {
+        stock = BigDecimal.ZERO.setScale(2);
+    }
+
+    @Benchmark
+    public BigDecimal redondear() {
+        return siguiente(cantidades).setScale(2, BigDecimal.ROUND_HALF_UP);
+    }
+
+    @Benchmark
+    public BigDecimal redondearYSumar() {
+        stock = stock.add(siguiente(cantidades).setScale(2, BigDecimal.ROUND_HALF_UP));
+        return stock;
+    }
+
+    @Benchmark
+    public BigDecimal sumarRedondeada() {
+        stock = stock.add(siguiente(cantidadesRedondeadas));
+        return stock;
+    }
+
+    private BigDecimal siguiente(BigDecimal[] valores) {
+        return valores[indice++ & (VALORES - 1)];
+    }
+}
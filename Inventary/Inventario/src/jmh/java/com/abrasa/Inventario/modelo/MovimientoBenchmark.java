@@ -0,0 +1,74 @@
+package com.abrasa.Inventario.modelo;
+
+import com.abrasa.Inventario.pruebas.BaseDatosPruebas;
+import org.openjdk.jmh.annotations.*;
+import org.openxava.jpa.XPersistence;
+
+import javax.persistence.EntityManager;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Alta de movimientos, que pasa por aplicarMovimientoSobreStock y el UPDATE atómico de LibroStock.
+ *
+ * registrarUnHilo reparte los movimientos entre muchos productos; registrarContendido
+ * pone a 8 hilos sobre el mismo producto, que es donde se serializan las actualizaciones.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class MovimientoBenchmark {
+
+    private static final int PRODUCTOS = 100;
+
+    private static final BigDecimal CANTIDAD = new BigDecimal("1.00");
+
+    @State(Scope.Thread)
+    public static class Hilo {
+
+        int siguiente;
+
+        @Setup(Level.Iteration)
+        public void prepararHilo() {
+            BaseDatosPruebas.usarEnEsteHilo();
+        }
+
+        @TearDown(Level.Iteration)
+        public void cerrarHilo() {
+            XPersistence.reset();
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void prepararBase() throws Exception {
+        BaseDatosPruebas.iniciar();
+        BaseDatosPruebas.cargarProductos(PRODUCTOS);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void registrarUnHilo(Hilo hilo) {
+        registrar("P" + (hilo.siguiente++ % PRODUCTOS));
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void registrarContendido(Hilo hilo) {
+        registrar("P0");
+    }
+
+    private static void registrar(String codigoProducto) {
+        EntityManager manager = XPersistence.getManager();
+        Movimiento movimiento = new Movimiento();
+        movimiento.setProducto(manager.find(Producto.class, codigoProducto));
+        movimiento.setTipoMovimiento(TipoMovimiento.ENTRADA);
+        movimiento.setCantidad(CANTIDAD);
+        movimiento.setFecha(LocalDate.now());
+        manager.persist(movimiento);
+        XPersistence.commit();
+    }
+}
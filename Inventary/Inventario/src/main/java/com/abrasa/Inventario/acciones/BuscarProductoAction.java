@@ -0,0 +1,42 @@
+package com.abrasa.Inventario.acciones;
+
+import com.abrasa.Inventario.servicios.BusquedaProductos;
+import org.openxava.actions.TabBaseAction;
+
+import java.util.List;
+
+/**
+ * Deja en la lista solo los productos encontrados por BusquedaProductos, en el
+ * orden de relevancia, hasta que se quita la búsqueda.
+ */
+public class BuscarProductoAction extends TabBaseAction {
+
+    @Override
+    public void execute() throws Exception {
+        String texto = (String) getView().getValue("texto");
+        List<String> codigos = BusquedaProductos.buscar(texto);
+        if (codigos.isEmpty()) {
+            addError("busqueda_sin_resultados", texto);
+            return;
+        }
+
+        StringBuilder codigosEntreComillas = new StringBuilder();
+        StringBuilder relevancia = new StringBuilder("case ${codigo}");
+        for (int i = 0; i < codigos.size(); i++) {
+            String literal = "'" + codigos.get(i).replace("'", "''") + "'";
+            codigosEntreComillas.append(i == 0 ? "" : ", ").append(literal);
+            relevancia.append(" when ").append(literal).append(" then ").append(i);
+        }
+        relevancia.append(" end");
+        getTab().setBaseCondition(condicionOriginal()
+                + "${codigo} in (" + codigosEntreComillas + ") order by " + relevancia);
+
+        closeDialog();
+        addMessage("busqueda_productos_resultado", codigos.size(), texto);
+    }
+
+    private String condicionOriginal() throws Exception {
+        String condicion = getTab().getMetaTab().getBaseCondition();
+        return condicion == null || condicion.trim().isEmpty() ? "" : "(" + condicion + ") and ";
+    }
+}
@@ -0,0 +1,35 @@
+package com.abrasa.Inventario.acciones;
+
+import com.abrasa.Inventario.servicios.ConciliadorStock;
+import org.openxava.actions.TabBaseAction;
+
+import java.util.List;
+
+/**
+ * Muestra los productos cuyo stock no coincide con sus movimientos, sin
+ * modificar nada. Para corregirlos está CorregirStockAction.
+ */
+public class ConciliarStockAction extends TabBaseAction {
+
+    // Para no llenar la pantalla; el detalle completo queda en el log
+    private static final int MAXIMO_DISCREPANCIAS_MOSTRADAS = 20;
+
+    @Override
+    public void execute() throws Exception {
+        ConciliadorStock.Conciliacion conciliacion = ConciliadorStock.revisar();
+        List<ConciliadorStock.Discrepancia> discrepancias = conciliacion.getDiscrepancias();
+        if (discrepancias.isEmpty()) {
+            addMessage("stock_cuadrado", conciliacion.getProductos());
+            return;
+        }
+        addWarning("stock_descuadrado", conciliacion.getProductos(), discrepancias.size());
+        for (int i = 0; i < discrepancias.size() && i < MAXIMO_DISCREPANCIAS_MOSTRADAS; i++) {
+            ConciliadorStock.Discrepancia discrepancia = discrepancias.get(i);
+            addWarning("discrepancia_stock", discrepancia.getCodigo(), discrepancia.getStockActual(),
+                    discrepancia.getStockMovimientos(), discrepancia.getStockReservado());
+        }
+        if (discrepancias.size() > MAXIMO_DISCREPANCIAS_MOSTRADAS) {
+            addWarning("mas_discrepancias_stock", discrepancias.size() - MAXIMO_DISCREPANCIAS_MOSTRADAS);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.abrasa.Inventario.acciones;
+
+import com.abrasa.Inventario.modelo.Movimiento;
+import com.abrasa.Inventario.servicios.ReservasStock;
+import org.openxava.actions.ViewBaseAction;
+import org.openxava.jpa.XPersistence;
+
+/**
+ * Convierte la reserva mostrada en una SALIDA de su cantidad.
+ */
+public class ConfirmarReservaAction extends ViewBaseAction {
+
+    @Override
+    public void execute() throws Exception {
+        Long id = (Long) getView().getValue("id");
+        if (id == null) {
+            addError("reserva_sin_grabar");
+            return;
+        }
+        Movimiento salida;
+        try {
+            salida = ReservasStock.confirmar(id);
+        }
+        catch (IllegalArgumentException ex) {
+            // Si falló la SALIDA, la reserva no debe quedar confirmada
+            XPersistence.rollback();
+            addError("error_reserva", ex.getMessage());
+            return;
+        }
+        getView().refresh();
+        addMessage("reserva_confirmada", id, salida.getId());
+    }
+}
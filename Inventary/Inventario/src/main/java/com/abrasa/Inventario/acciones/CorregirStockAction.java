@@ -0,0 +1,23 @@
+package com.abrasa.Inventario.acciones;
+
+import com.abrasa.Inventario.servicios.ConciliadorStock;
+import org.openxava.actions.TabBaseAction;
+
+/**
+ * Lleva el stock de los productos descuadrados a la suma de sus movimientos y
+ * refresca la lista. Se pide confirmación antes (confirmar en controladores.xml);
+ * el detalle de cada corrección queda en el log.
+ */
+public class CorregirStockAction extends TabBaseAction {
+
+    @Override
+    public void execute() throws Exception {
+        ConciliadorStock.Conciliacion conciliacion = ConciliadorStock.corregir();
+        getTab().reset();
+        addMessage("stock_conciliado", conciliacion.getProductos(),
+                conciliacion.getDiscrepancias().size(), conciliacion.getCorregidas());
+        if (conciliacion.getReservasExcedidas() > 0) {
+            addWarning("stock_reservado_excede_movimientos", conciliacion.getReservasExcedidas());
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.abrasa.Inventario.acciones;
+
+import com.abrasa.Inventario.reportes.ColaReportes;
+import com.abrasa.Inventario.reportes.TrabajoReporte;
+import com.abrasa.Inventario.web.DescargarReporteServlet;
+import org.openxava.actions.BaseAction;
+import org.openxava.actions.IForwardAction;
+
+/**
+ * Abre el último reporte pedido en la sesión si ya está listo;
+ * si no, informa en qué estado está para volver a intentarlo.
+ */
+public class DescargarReporteAction extends BaseAction implements IForwardAction {
+
+    private String uri;
+
+    @Override
+    public void execute() throws Exception {
+        uri = null;
+        TrabajoReporte trabajo = ColaReportes.ultimoDeSesion(getRequest().getSession());
+        if (trabajo == null) {
+            addError("sin_reportes_pedidos");
+            return;
+        }
+
+        switch (trabajo.getEstado()) {
+            case TERMINADO:
+                uri = DescargarReporteServlet.getURI(trabajo);
+                break;
+            case FALLIDO:
+                addError("reporte_fallido", trabajo.getError());
+                break;
+            default:
+                addMessage("reporte_en_proceso");
+        }
+    }
+
+    @Override
+    public String getForwardURI() {
+        return uri;
+    }
+
+    @Override
+    public boolean inNewWindow() {
+        return true;
+    }
+}
@@ -0,0 +1,58 @@
+package com.abrasa.Inventario.acciones;
+
+import com.abrasa.Inventario.reportes.ColaReportes;
+import com.abrasa.Inventario.reportes.TrabajoReporte;
+import com.abrasa.Inventario.web.DescargarReporteServlet;
+import net.sf.jasperreports.engine.JRDataSource;
+import org.openxava.actions.IForwardAction;
+import org.openxava.actions.ViewBaseAction;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Base de las acciones que piden un reporte a la ColaReportes.
+ *
+ * Si el PDF ya estaba generado con los datos actuales se abre enseguida; si no,
+ * queda en la cola y el usuario lo abre después con descargarReporte.
+ */
+public abstract class EncolarReporteBaseAction extends ViewBaseAction implements IForwardAction {
+
+    private String uri;
+
+    /**
+     * @return false si la cola está llena y el reporte no se encoló.
+     */
+    protected boolean encolar(String jrxml, Map<String, Object> parametros, String nombreArchivo,
+                              Callable<JRDataSource> fuenteDatos) {
+        uri = null;
+        TrabajoReporte trabajo;
+        try {
+            trabajo = ColaReportes.encolar(jrxml, parametros, nombreArchivo, fuenteDatos);
+        }
+        catch (RejectedExecutionException ex) {
+            addError("cola_reportes_llena");
+            return false;
+        }
+
+        ColaReportes.registrarEnSesion(getRequest().getSession(), trabajo);
+        if (trabajo.getEstado() == TrabajoReporte.Estado.TERMINADO) {
+            uri = DescargarReporteServlet.getURI(trabajo);
+        }
+        else {
+            addMessage("reporte_encolado");
+        }
+        return true;
+    }
+
+    @Override
+    public String getForwardURI() {
+        return uri;
+    }
+
+    @Override
+    public boolean inNewWindow() {
+        return true;
+    }
+}
@@ -0,0 +1,35 @@
+package com.abrasa.Inventario.acciones;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.openxava.actions.BaseAction;
+import org.openxava.jpa.XPersistence;
+
+import java.util.Arrays;
+
+/**
+ * Muestra aciertos y fallos de cada región de la caché de segundo nivel
+ * desde que arrancó la aplicación.
+ */
+public class EstadisticasCacheAction extends BaseAction {
+
+    @Override
+    public void execute() throws Exception {
+        Statistics estadisticas = XPersistence.getManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class)
+                .getStatistics();
+
+        String[] regiones = estadisticas.getSecondLevelCacheRegionNames();
+        Arrays.sort(regiones);
+        for (String region : regiones) {
+            CacheRegionStatistics deRegion = estadisticas.getCacheRegionStatistics(region);
+            if (deRegion != null) {
+                // JCache no informa cuántos elementos tiene cada región, solo aciertos y fallos
+                addMessage("estadisticas_region_cache", region, deRegion.getHitCount(), deRegion.getMissCount());
+            }
+        }
+        addMessage("estadisticas_consultas_cache",
+                estadisticas.getQueryCacheHitCount(), estadisticas.getQueryCacheMissCount());
+    }
+}
@@ -0,0 +1,40 @@
+package com.abrasa.Inventario.acciones;
+
+import com.abrasa.Inventario.conexiones.PoolMedido;
+import org.openxava.actions.BaseAction;
+
+/**
+ * Muestra el estado del pool de conexiones y cómo se usó desde que arrancó la
+ * aplicación: esperas por tramo y los prestatarios que más tiempo retienen conexiones.
+ */
+public class EstadisticasConexionesAction extends BaseAction {
+
+    private static final int PRESTATARIOS_MOSTRADOS = 10;
+
+    @Override
+    public void execute() throws Exception {
+        if (PoolMedido.todos().isEmpty()) {
+            addMessage("pool_sin_medidas");
+            return;
+        }
+        for (PoolMedido pool : PoolMedido.todos()) {
+            addMessage("estadisticas_pool", pool.getNombre(), pool.getActivas(), pool.getInactivas(),
+                    pool.getMaximo(), pool.getEsperando(), pool.getFallidos(), pool.getEsperaMaximaMillis());
+            addMessage("estadisticas_pool_esperas", describirEsperas(pool.getEsperas()));
+            pool.getRetenciones().stream().limit(PRESTATARIOS_MOSTRADOS).forEach(retencion ->
+                    addMessage("estadisticas_pool_retencion", retencion.getPrestatario(), retencion.getPrestamos(),
+                            retencion.getTotalMillis(), retencion.getMaximaMillis()));
+        }
+    }
+
+    private String describirEsperas(long[] esperas) {
+        long[] tramos = PoolMedido.getTramosEsperaMillis();
+        StringBuilder texto = new StringBuilder();
+        for (int i = 0; i < esperas.length; i++) {
+            texto.append(i == 0 ? "" : ", ")
+                    .append(i < tramos.length ? "< " + tramos[i] : ">= " + tramos[tramos.length - 1])
+                    .append(" ms: ").append(esperas[i]);
+        }
+        return texto.toString();
+    }
+}
@@ -0,0 +1,64 @@
+package com.abrasa.Inventario.acciones;
+
+import com.abrasa.Inventario.servicios.ImportadorMovimientos;
+import org.openxava.actions.ViewBaseAction;
+import org.openxava.util.Is;
+import org.openxava.util.Locales;
+import org.openxava.util.XFileItem;
+import org.openxava.util.XavaPreferences;
+
+import java.text.DecimalFormatSymbols;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Importa el archivo subido en el diálogo y muestra el resumen con los errores por fila.
+ */
+public class ImportarMovimientosAction extends ViewBaseAction {
+
+    // Para no llenar la pantalla cuando el archivo trae muchas filas malas
+    private static final int MAXIMO_ERRORES_MOSTRADOS = 20;
+
+    @Override
+    public void execute() throws Exception {
+        XFileItem archivo = (XFileItem) getView().getValue("file");
+        if (archivo == null || Is.emptyString(archivo.getFileName())) {
+            addError("seleccione_archivo_movimientos");
+            return;
+        }
+
+        String nombre = archivo.getFileName().toLowerCase();
+        ImportadorMovimientos importador = new ImportadorMovimientos();
+        if (nombre.endsWith(".xlsx") || nombre.endsWith(".xls")) {
+            importador.importarExcel(archivo.getBytes());
+        }
+        else if (nombre.endsWith(".csv")) {
+            // Los números del CSV se escriben como los muestra la aplicación a este usuario
+            XavaPreferences preferencias = XavaPreferences.getInstance();
+            Iterator<String[]> filas;
+            try {
+                filas = ImportadorMovimientos.leerCsv(archivo.getBytes(),
+                        preferencias.getCSVEncoding(), preferencias.getCSVSeparator());
+            }
+            catch (IllegalArgumentException ex) {
+                addError("error_importacion", ex.getMessage());
+                return;
+            }
+            importador.importar(filas, DecimalFormatSymbols.getInstance(Locales.getCurrent()).getDecimalSeparator());
+        }
+        else {
+            addError("formato_importacion_no_soportado", archivo.getFileName());
+            return;
+        }
+
+        closeDialog();
+        addMessage("movimientos_importados", importador.getImportados(), importador.getErrores().size());
+        List<String> errores = importador.getErrores();
+        for (int i = 0; i < errores.size() && i < MAXIMO_ERRORES_MOSTRADOS; i++) {
+            addError("error_fila_importacion", errores.get(i));
+        }
+        if (errores.size() > MAXIMO_ERRORES_MOSTRADOS) {
+            addError("mas_errores_importacion", errores.size() - MAXIMO_ERRORES_MOSTRADOS);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.abrasa.Inventario.acciones;
+
+import com.abrasa.Inventario.servicios.ReservasStock;
+import org.openxava.actions.ViewBaseAction;
+
+/**
+ * Devuelve al disponible la cantidad de la reserva mostrada, antes de que venza.
+ */
+public class LiberarReservaAction extends ViewBaseAction {
+
+    @Override
+    public void execute() throws Exception {
+        Long id = (Long) getView().getValue("id");
+        if (id == null) {
+            addError("reserva_sin_grabar");
+            return;
+        }
+        try {
+            ReservasStock.liberar(id);
+        }
+        catch (IllegalArgumentException ex) {
+            addError("error_reserva", ex.getMessage());
+            return;
+        }
+        getView().refresh();
+        addMessage("reserva_liberada", id);
+    }
+}
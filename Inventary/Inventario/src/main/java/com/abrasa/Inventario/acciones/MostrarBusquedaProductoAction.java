@@ -0,0 +1,17 @@
+package com.abrasa.Inventario.acciones;
+
+import org.openxava.actions.ViewBaseAction;
+
+/**
+ * Abre el diálogo donde se escriben las palabras a buscar en el catálogo.
+ */
+public class MostrarBusquedaProductoAction extends ViewBaseAction {
+
+    @Override
+    public void execute() throws Exception {
+        showDialog();
+        getView().setModelName("BusquedaProducto");
+        getView().setTitleId("busqueda_productos");
+        setControllers("BusquedaProducto");
+    }
+}
@@ -0,0 +1,18 @@
+package com.abrasa.Inventario.acciones;
+
+import org.openxava.actions.ViewBaseAction;
+
+/**
+ * Abre el diálogo donde se eligen período, producto, proveedor y tipo
+ * antes de imprimir el historial de movimientos.
+ */
+public class MostrarFiltroHistorialAction extends ViewBaseAction {
+
+    @Override
+    public void execute() throws Exception {
+        showDialog();
+        getView().setModelName("FiltroHistorialMovimientos");
+        getView().setTitleId("filtro_historial_movimientos");
+        setControllers("FiltroHistorialMovimientos");
+    }
+}
@@ -0,0 +1,17 @@
+package com.abrasa.Inventario.acciones;
+
+import org.openxava.actions.ViewBaseAction;
+
+/**
+ * Abre el diálogo donde se eligen período y producto antes de imprimir el kardex.
+ */
+public class MostrarFiltroKardexAction extends ViewBaseAction {
+
+    @Override
+    public void execute() throws Exception {
+        showDialog();
+        getView().setModelName("FiltroKardex");
+        getView().setTitleId("filtro_kardex");
+        setControllers("FiltroKardex");
+    }
+}
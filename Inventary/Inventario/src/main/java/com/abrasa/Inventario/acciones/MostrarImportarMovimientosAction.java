@@ -0,0 +1,19 @@
+package com.abrasa.Inventario.acciones;
+
+import org.openxava.actions.ViewBaseAction;
+import org.openxava.model.transients.WithExcelCSVFileItem;
+
+/**
+ * Abre el diálogo para subir la hoja de cálculo con los movimientos a importar.
+ */
+public class MostrarImportarMovimientosAction extends ViewBaseAction {
+
+    @Override
+    public void execute() throws Exception {
+        showDialog();
+        // Reutilizamos el modelo transitorio de OpenXava que solo tiene el campo del archivo
+        getView().setModelName(WithExcelCSVFileItem.class.getSimpleName());
+        getView().setTitleId("importar_movimientos");
+        setControllers("ImportarMovimientos");
+    }
+}
@@ -1,40 +1,84 @@
 package com.abrasa.Inventario.acciones;
 
 import com.abrasa.Inventario.modelo.Movimiento;
-import net.sf.jasperreports.engine.JRDataSource;
-import net.sf.jasperreports.engine.data.JRBeanCollectionDataSource;
-import org.openxava.actions.JasperReportBaseAction;
+import com.abrasa.Inventario.reportes.FuenteDatosDesplazable;
+import org.hibernate.Session;
+import org.hibernate.query.Query;
 import org.openxava.jpa.XPersistence;
+import org.openxava.validators.ValidationException;
 
+import java.time.LocalDate;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
-public class PrintHistorialMovimientosAction extends JasperReportBaseAction {
+/**
+ * Encola el historial de movimientos con los filtros elegidos en el diálogo
+ * FiltroHistorialMovimientos. Los filtros se leen aquí, en la petición, y se
+ * aplican en el WHERE de la consulta que ejecuta el hilo de la ColaReportes.
+ */
+public class PrintHistorialMovimientosAction extends EncolarReporteBaseAction {
+
+    private static final String[] FILTROS =
+            { "fechaDesde", "fechaHasta", "codigoProducto", "codigoProveedor", "tipoMovimiento" };
 
     @Override
-    protected JRDataSource getDataSource() throws Exception {
-        // Traemos todos los movimientos ordenados por fecha y nombre de producto
-        List<Movimiento> movimientos = XPersistence.getManager()
-                .createQuery(
-                        "from Movimiento m order by m.fecha, m.producto.nombre",
-                        Movimiento.class
-                )
-                .getResultList();
-
-        return new JRBeanCollectionDataSource(movimientos);
+    public void execute() throws Exception {
+        Map<String, Object> filtros = leerFiltros();
+        // Recorremos los movimientos ordenados por fecha y nombre de producto sin cargarlos todos en memoria
+        boolean encolado = encolar("HistorialMovimientos.jrxml", filtros, "historial-movimientos", () -> {
+            Session sesion = XPersistence.getManager().unwrap(Session.class);
+            return new FuenteDatosDesplazable(sesion, crearConsulta(sesion, filtros));
+        });
+        if (encolado) {
+            closeDialog();
+        }
     }
 
-    @Override
-    protected String getJRXML() throws Exception {
-        // Nombre del archivo ubicado en src/main/resources/reports
-        return "HistorialMovimientos.jrxml";
+    private Map<String, Object> leerFiltros() {
+        LocalDate fechaDesde = (LocalDate) getView().getValue("fechaDesde");
+        LocalDate fechaHasta = (LocalDate) getView().getValue("fechaHasta");
+        if (fechaDesde != null && fechaHasta != null && fechaDesde.isAfter(fechaHasta)) {
+            throw new ValidationException("fecha_desde_posterior_a_hasta");
+        }
+
+        Map<String, Object> filtros = new HashMap<>();
+        filtros.put("fechaDesde", fechaDesde);
+        filtros.put("fechaHasta", fechaHasta);
+        filtros.put("codigoProducto", vacioANulo(getView().getValue("producto.codigo")));
+        filtros.put("codigoProveedor", vacioANulo(getView().getValue("proveedor.codigo")));
+        filtros.put("tipoMovimiento", getView().getValue("tipoMovimiento"));
+        return filtros;
     }
 
-    @Override
-    @SuppressWarnings("rawtypes")
-    protected Map getParameters() throws Exception {
-        // Por ahora sin parmetros adicionales
-        return new HashMap<>();
+    /**
+     * Arma la consulta agregando solo los predicados de los filtros informados,
+     * de modo que el índice (fecha, producto_codigo) acote las filas leídas.
+     */
+    static Query<Movimiento> crearConsulta(Session sesion, Map<?, ?> filtros) {
+        StringBuilder jpql = new StringBuilder(
+                "select m from Movimiento m " +
+                        "join m.producto p " +
+                        "where 1 = 1");
+
+        if (filtros.get("fechaDesde") != null) jpql.append(" and m.fecha >= :fechaDesde");
+        if (filtros.get("fechaHasta") != null) jpql.append(" and m.fecha <= :fechaHasta");
+        if (filtros.get("codigoProducto") != null) jpql.append(" and p.codigo = :codigoProducto");
+        if (filtros.get("codigoProveedor") != null) jpql.append(" and m.proveedor.codigo = :codigoProveedor");
+        if (filtros.get("tipoMovimiento") != null) jpql.append(" and m.tipoMovimiento = :tipoMovimiento");
+        jpql.append(" order by m.fecha, p.nombre");
+
+        // El grafo trae producto y proveedor en la misma consulta, que es lo que imprime el reporte
+        Query<Movimiento> consulta = sesion.createQuery(jpql.toString(), Movimiento.class);
+        consulta.setHint("javax.persistence.fetchgraph", sesion.getEntityGraph("Movimiento.conProductoYProveedor"));
+        for (String nombre : FILTROS) {
+            if (filtros.get(nombre) != null) {
+                consulta.setParameter(nombre, filtros.get(nombre));
+            }
+        }
+        return consulta;
+    }
+
+    private static Object vacioANulo(Object valor) {
+        return valor == null || valor.toString().trim().isEmpty() ? null : valor;
     }
 }
@@ -0,0 +1,107 @@
+package com.abrasa.Inventario.acciones;
+
+import com.abrasa.Inventario.reportes.FuenteDatosDesplazable;
+import com.abrasa.Inventario.servicios.CortesStock;
+import org.hibernate.Session;
+import org.hibernate.query.NativeQuery;
+import org.openxava.jpa.XPersistence;
+import org.openxava.validators.ValidationException;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Encola el kardex: los movimientos de cada producto en el período con el saldo
+ * después de cada uno.
+ *
+ * El saldo lo calcula la base con SUM() OVER (PARTITION BY producto ORDER BY fecha, id),
+ * arrancando del corte de stock anterior al período (ver CortesStock): solo se leen
+ * los movimientos desde ese corte, y los anteriores a fechaDesde quedan como saldo inicial.
+ *
+ * Cada producto seleccionado tiene además una fila de saldo inicial, sin tipo de
+ * movimiento, para que también aparezcan los que no se movieron en el período.
+ */
+public class PrintKardexAction extends EncolarReporteBaseAction {
+
+    @Override
+    public void execute() throws Exception {
+        Map<String, Object> filtros = leerFiltros();
+        boolean encolado = encolar("Kardex.jrxml", filtros, "kardex", () -> {
+            Session sesion = XPersistence.getManager().unwrap(Session.class);
+            return new FuenteDatosDesplazable(sesion, crearConsulta(sesion, filtros));
+        });
+        if (encolado) {
+            closeDialog();
+        }
+    }
+
+    private Map<String, Object> leerFiltros() {
+        LocalDate fechaDesde = (LocalDate) getView().getValue("fechaDesde");
+        LocalDate fechaHasta = (LocalDate) getView().getValue("fechaHasta");
+        if (fechaDesde == null || fechaHasta == null) {
+            throw new ValidationException("kardex_requiere_periodo");
+        }
+        if (fechaDesde.isAfter(fechaHasta)) {
+            throw new ValidationException("fecha_desde_posterior_a_hasta");
+        }
+
+        Map<String, Object> filtros = new HashMap<>();
+        filtros.put("fechaDesde", fechaDesde);
+        filtros.put("fechaHasta", fechaHasta);
+        Object codigoProducto = getView().getValue("producto.codigo");
+        filtros.put("codigoProducto",
+                codigoProducto == null || codigoProducto.toString().trim().isEmpty() ? null : codigoProducto);
+        return filtros;
+    }
+
+    static NativeQuery<?> crearConsulta(Session sesion, Map<?, ?> filtros) {
+        LocalDate fechaDesde = (LocalDate) filtros.get("fechaDesde");
+        LocalDate fechaCorte = CortesStock.corteAnterior(fechaDesde);
+        Object codigoProducto = filtros.get("codigoProducto");
+        String cantidadConSigno = "case when m.tipoMovimiento = 'ENTRADA' then m.cantidad else -m.cantidad end";
+
+        StringBuilder sql = new StringBuilder(
+                "select k.codigoProducto, p.nombre as nombreProducto, p.unidadMedida, k.fecha, k.tipoMovimiento, " +
+                        "k.cantidad, k.saldo - k.cantidadConSigno as saldoAnterior, k.saldo, k.observaciones " +
+                        "from (" +
+                        // Saldo inicial de cada producto, aunque no tenga movimientos en el período
+                        "select p.codigo as codigoProducto, cast(:fechaDesde as date) as fecha, 0 as id, " +
+                        "null as tipoMovimiento, null as cantidad, null as observaciones, 0 as cantidadConSigno, " +
+                        "coalesce(c.cantidad, 0) + coalesce(sum(" + cantidadConSigno + "), 0) as saldo " +
+                        "from producto p " +
+                        "left join corte_stock c on c.producto_codigo = p.codigo and c.fecha = :fechaCorte " +
+                        "left join movimiento m on m.producto_codigo = p.codigo " +
+                        "and m.fecha > :fechaCorte and m.fecha < :fechaDesde ");
+        if (codigoProducto != null) {
+            sql.append("where p.codigo = :codigoProducto ");
+        }
+        sql.append("group by p.codigo, c.cantidad " +
+                "union all " +
+                "select m.producto_codigo, m.fecha, m.id, m.tipoMovimiento, m.cantidad, m.observaciones, " +
+                cantidadConSigno + ", " +
+                "coalesce(c.cantidad, 0) + sum(" + cantidadConSigno + ") " +
+                "over (partition by m.producto_codigo order by m.fecha, m.id) " +
+                "from movimiento m " +
+                "left join corte_stock c on c.producto_codigo = m.producto_codigo and c.fecha = :fechaCorte " +
+                "where m.fecha > :fechaCorte and m.fecha <= :fechaHasta");
+        if (codigoProducto != null) {
+            sql.append(" and m.producto_codigo = :codigoProducto");
+        }
+        sql.append(") k " +
+                "join producto p on p.codigo = k.codigoProducto " +
+                // Los movimientos entre el corte y fechaDesde solo cuentan para el saldo inicial
+                "where k.tipoMovimiento is null or k.fecha >= :fechaDesde " +
+                // El saldo inicial va primero: tiene la fecha del comienzo del período e id 0
+                "order by p.nombre, k.codigoProducto, k.fecha, k.id");
+
+        NativeQuery<?> consulta = sesion.createNativeQuery(sql.toString(), "Movimiento.kardex");
+        consulta.setParameter("fechaCorte", fechaCorte);
+        consulta.setParameter("fechaDesde", fechaDesde);
+        consulta.setParameter("fechaHasta", filtros.get("fechaHasta"));
+        if (codigoProducto != null) {
+            consulta.setParameter("codigoProducto", codigoProducto);
+        }
+        return consulta;
+    }
+}
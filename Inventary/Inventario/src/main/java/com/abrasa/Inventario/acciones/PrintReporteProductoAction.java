@@ -1,40 +1,34 @@
 package com.abrasa.Inventario.acciones;
 
-import com.abrasa.Inventario.modelo.Producto;
-import net.sf.jasperreports.engine.JRDataSource;
+import com.abrasa.Inventario.reportes.FilaReporteProducto;
 import net.sf.jasperreports.engine.data.JRBeanCollectionDataSource;
-import org.openxava.actions.JasperReportBaseAction;
 import org.openxava.jpa.XPersistence;
 
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 
-public class PrintReporteProductoAction extends JasperReportBaseAction {
+/**
+ * Pide el catálogo de productos a la ColaReportes. Como solo cambia con los
+ * productos y sus movimientos, casi siempre se entrega el PDF ya generado.
+ */
+public class PrintReporteProductoAction extends EncolarReporteBaseAction {
 
     @Override
-    protected JRDataSource getDataSource() throws Exception {
-        // Traemos todos los productos activos ordenados por nombre
-        List<Producto> productos = XPersistence.getManager()
+    public void execute() throws Exception {
+        encolar("ProductoDetalle.jrxml", Collections.emptyMap(), "productos",
+                () -> new JRBeanCollectionDataSource(consultarProductos()));
+    }
+
+    static List<FilaReporteProducto> consultarProductos() {
+        // Traemos solo las columnas del reporte de los productos activos ordenados por nombre
+        return XPersistence.getManager()
                 .createQuery(
-                        "from Producto p where p.activo = true order by p.nombre",
-                        Producto.class
+                        "select new com.abrasa.Inventario.reportes.FilaReporteProducto(" +
+                                "p.codigo, p.nombre, p.tipo, p.stockActual, p.stockMinimo, " +
+                                "p.precioCompra, p.precioVenta, p.iva) " +
+                                "from Producto p where p.activo = true order by p.nombre",
+                        FilaReporteProducto.class
                 )
                 .getResultList();
-
-        return new JRBeanCollectionDataSource(productos);
-    }
-
-    @Override
-    protected String getJRXML() throws Exception {
-        // Nombre del archivo ubicado en src/main/resources/reports
-        return "ProductoDetalle.jrxml";
-    }
-
-    @Override
-    @SuppressWarnings("rawtypes")
-    protected Map getParameters() throws Exception {
-        // Por ahora no enviamos parmetros adicionales
-        return new HashMap<>();
     }
 }
@@ -0,0 +1,14 @@
+package com.abrasa.Inventario.acciones;
+
+import org.openxava.actions.TabBaseAction;
+
+/**
+ * Vuelve a mostrar la lista completa después de una búsqueda.
+ */
+public class QuitarBusquedaProductoAction extends TabBaseAction {
+
+    @Override
+    public void execute() throws Exception {
+        getTab().setBaseCondition(getTab().getMetaTab().getBaseCondition());
+    }
+}
@@ -0,0 +1,18 @@
+package com.abrasa.Inventario.acciones;
+
+import com.abrasa.Inventario.servicios.AlertasStock;
+import org.openxava.actions.TabBaseAction;
+
+/**
+ * Recalcula la marca de bajo mínimo de todo el catálogo (por ejemplo, tras una
+ * carga directa en la base) y refresca la lista.
+ */
+public class RecalcularBajoMinimoAction extends TabBaseAction {
+
+    @Override
+    public void execute() throws Exception {
+        int cambiados = AlertasStock.recalcularTodos();
+        getTab().reset();
+        addMessage("bajo_minimo_recalculado", cambiados);
+    }
+}
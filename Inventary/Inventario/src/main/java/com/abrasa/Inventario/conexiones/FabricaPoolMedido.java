@@ -0,0 +1,52 @@
+package com.abrasa.Inventario.conexiones;
+
+import org.apache.tomcat.dbcp.dbcp2.BasicDataSource;
+import org.apache.tomcat.dbcp.dbcp2.BasicDataSourceFactory;
+
+import javax.naming.Context;
+import javax.naming.Name;
+import javax.naming.RefAddr;
+import javax.naming.Reference;
+import javax.naming.spi.ObjectFactory;
+import java.util.Enumeration;
+import java.util.Hashtable;
+import java.util.Properties;
+
+/**
+ * Fábrica del Resource jdbc/InventarioAbrasaDS de context.xml (atributo factory).
+ *
+ * Crea el BasicDataSource de DBCP con los mismos atributos que la fábrica por
+ * defecto de Tomcat y lo envuelve en un PoolMedido. Atributo propio:
+ * avisoRetencionMillis, a partir del cual se avisa de una conexión retenida
+ * (0 = no avisar; por defecto AVISO_RETENCION_MS).
+ */
+public class FabricaPoolMedido implements ObjectFactory {
+
+    static final String AVISO_RETENCION = "avisoRetencionMillis";
+    static final long AVISO_RETENCION_MS = 10_000;
+
+    @Override
+    public Object getObjectInstance(Object objeto, Name nombre, Context contexto, Hashtable<?, ?> entorno)
+            throws Exception {
+        if (!(objeto instanceof Reference)) {
+            return null;
+        }
+        Properties propiedades = new Properties();
+        long avisoRetencion = AVISO_RETENCION_MS;
+        Enumeration<RefAddr> atributos = ((Reference) objeto).getAll();
+        while (atributos.hasMoreElements()) {
+            RefAddr atributo = atributos.nextElement();
+            if (atributo.getContent() == null) {
+                continue;
+            }
+            if (atributo.getType().equals(AVISO_RETENCION)) {
+                avisoRetencion = Long.parseLong(atributo.getContent().toString().trim());
+            }
+            else {
+                propiedades.setProperty(atributo.getType(), atributo.getContent().toString());
+            }
+        }
+        BasicDataSource pool = BasicDataSourceFactory.createDataSource(propiedades);
+        return new PoolMedido(nombre != null ? nombre.toString() : "pool", pool, avisoRetencion);
+    }
+}
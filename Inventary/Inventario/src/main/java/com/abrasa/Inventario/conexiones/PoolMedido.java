@@ -0,0 +1,295 @@
+package com.abrasa.Inventario.conexiones;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.tomcat.dbcp.dbcp2.BasicDataSource;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * El pool de DBCP de context.xml con medidas de uso (ver FabricaPoolMedido).
+ *
+ * Activas e inactivas las da el pool; aquí se cuentan los hilos que esperan una
+ * conexión, cuánto esperó cada préstamo (por tramos) y cuánto la retuvo cada
+ * "prestatario": la primera clase de la aplicación en la pila de quien la pidió,
+ * o la acción de OpenXava si no hay ninguna. Una conexión retenida más de
+ * avisoRetencionMillis se avisa en el log al devolverla; las que no se devuelven
+ * las recupera DBCP (removeAbandoned*) y logAbandoned escribe dónde se pidieron.
+ */
+public class PoolMedido implements DataSource, AutoCloseable {
+
+    private static final Log log = LogFactory.getLog(PoolMedido.class);
+
+    // Límite superior (ms) de cada tramo de espera; el último tramo es "más que eso"
+    static final long[] TRAMOS_ESPERA_MS = { 1, 10, 100, 1000, 5000 };
+
+    private static final Map<String, PoolMedido> pools = new ConcurrentHashMap<>();
+
+    private final String nombre;
+    private final BasicDataSource pool;
+    private final long avisoRetencionNanos;
+
+    private final AtomicInteger esperando = new AtomicInteger();
+    private final AtomicLongArray esperas = new AtomicLongArray(TRAMOS_ESPERA_MS.length + 1);
+    private final AtomicLong esperaMaximaNanos = new AtomicLong();
+    private final LongAdder fallidos = new LongAdder();
+    private final Map<String, Retencion> retenciones = new ConcurrentHashMap<>();
+
+    PoolMedido(String nombre, BasicDataSource pool, long avisoRetencionMillis) {
+        this.nombre = nombre;
+        this.pool = pool;
+        this.avisoRetencionNanos = avisoRetencionMillis * 1_000_000;
+        pools.put(nombre, this);
+    }
+
+    /**
+     * Los pools creados por FabricaPoolMedido, por nombre del recurso.
+     */
+    public static Collection<PoolMedido> todos() {
+        return new TreeMap<>(pools).values();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return prestar(pool::getConnection);
+    }
+
+    @Override
+    public Connection getConnection(String usuario, String clave) throws SQLException {
+        // BasicDataSource no admite otro usuario que el configurado, pero la espera y el uso se miden igual
+        return prestar(() -> pool.getConnection(usuario, clave));
+    }
+
+    @Override
+    public void close() throws SQLException {
+        pools.remove(nombre, this);
+        pool.close();
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public int getActivas() {
+        return pool.getNumActive();
+    }
+
+    public int getInactivas() {
+        return pool.getNumIdle();
+    }
+
+    public int getMaximo() {
+        return pool.getMaxTotal();
+    }
+
+    public int getEsperando() {
+        return esperando.get();
+    }
+
+    public long getFallidos() {
+        return fallidos.sum();
+    }
+
+    public long getEsperaMaximaMillis() {
+        return esperaMaximaNanos.get() / 1_000_000;
+    }
+
+    /**
+     * Préstamos por tramo de espera, en el orden de TRAMOS_ESPERA_MS más el de "más".
+     */
+    public long[] getEsperas() {
+        long[] copia = new long[esperas.length()];
+        for (int i = 0; i < copia.length; i++) {
+            copia[i] = esperas.get(i);
+        }
+        return copia;
+    }
+
+    public static long[] getTramosEsperaMillis() {
+        return TRAMOS_ESPERA_MS.clone();
+    }
+
+    /**
+     * Retención por prestatario, los que más tiempo en total primero.
+     */
+    public List<Retencion> getRetenciones() {
+        List<Retencion> lista = new ArrayList<>(retenciones.values());
+        lista.sort(Comparator.comparingLong(Retencion::getTotalMillis).reversed());
+        return lista;
+    }
+
+    /**
+     * Pide la conexión al pool contando la espera y la devuelve envuelta para medir
+     * cuánto se retiene.
+     */
+    private Connection prestar(Pedido pedido) throws SQLException {
+        esperando.incrementAndGet();
+        long inicio = System.nanoTime();
+        Connection conexion;
+        try {
+            conexion = pedido.pedir();
+        }
+        catch (SQLException ex) {
+            fallidos.increment();
+            throw ex;
+        }
+        finally {
+            esperando.decrementAndGet();
+        }
+        long espera = System.nanoTime() - inicio;
+        registrarEspera(espera);
+        return medir(conexion, System.nanoTime());
+    }
+
+    private void registrarEspera(long nanos) {
+        long millis = nanos / 1_000_000;
+        int tramo = 0;
+        while (tramo < TRAMOS_ESPERA_MS.length && millis >= TRAMOS_ESPERA_MS[tramo]) {
+            tramo++;
+        }
+        esperas.incrementAndGet(tramo);
+        esperaMaximaNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    private Connection medir(Connection conexion, long prestadaEn) {
+        String prestatario = prestatario();
+        InvocationHandler manejador = new InvocationHandler() {
+            private boolean devuelta;
+
+            @Override
+            public Object invoke(Object proxy, Method metodo, Object[] args) throws Throwable {
+                if (metodo.getName().equals("close") && !devuelta) {
+                    devuelta = true;
+                    registrarRetencion(prestatario, System.nanoTime() - prestadaEn);
+                }
+                try {
+                    return metodo.invoke(conexion, args);
+                }
+                catch (InvocationTargetException ex) {
+                    throw ex.getCause();
+                }
+            }
+        };
+        return (Connection) Proxy.newProxyInstance(PoolMedido.class.getClassLoader(),
+                new Class<?>[] { Connection.class }, manejador);
+    }
+
+    private void registrarRetencion(String prestatario, long nanos) {
+        retenciones.computeIfAbsent(prestatario, Retencion::new).registrar(nanos);
+        if (avisoRetencionNanos > 0 && nanos > avisoRetencionNanos) {
+            log.warn(nombre + ": " + prestatario + " retuvo una conexión " + nanos / 1_000_000 + " ms");
+        }
+    }
+
+    /**
+     * Quién pide la conexión. Recorrer la pila cuesta unos microsegundos, poco al
+     * lado de una transacción, que es cuando Hibernate pide una conexión.
+     */
+    private static String prestatario() {
+        String accion = null;
+        for (StackTraceElement marco : new Throwable().getStackTrace()) {
+            String clase = marco.getClassName();
+            if (clase.startsWith("com.abrasa.") && !clase.startsWith(PoolMedido.class.getPackage().getName())) {
+                return clase.substring(clase.lastIndexOf('.') + 1) + "." + marco.getMethodName();
+            }
+            if (accion == null && clase.startsWith("org.openxava.actions.")) {
+                accion = clase.substring(clase.lastIndexOf('.') + 1);
+            }
+        }
+        return accion != null ? accion : "otros";
+    }
+
+    // ===== Resto de DataSource, tal cual el pool =====
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return pool.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter salida) throws SQLException {
+        pool.setLogWriter(salida);
+    }
+
+    @Override
+    public void setLoginTimeout(int segundos) throws SQLException {
+        pool.setLoginTimeout(segundos);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return pool.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return pool.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> clase) throws SQLException {
+        return clase.isInstance(pool) ? clase.cast(pool) : pool.unwrap(clase);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> clase) throws SQLException {
+        return clase.isInstance(pool) || pool.isWrapperFor(clase);
+    }
+
+    // Cómo se pide la conexión al pool: con el usuario configurado o con otro
+    private interface Pedido {
+        Connection pedir() throws SQLException;
+    }
+
+    /**
+     * Préstamos y tiempo de retención de un prestatario.
+     */
+    public static class Retencion {
+
+        private final String prestatario;
+        private final LongAdder prestamos = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maximaNanos = new AtomicLong();
+
+        Retencion(String prestatario) {
+            this.prestatario = prestatario;
+        }
+
+        void registrar(long nanos) {
+            prestamos.increment();
+            totalNanos.add(nanos);
+            maximaNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        public String getPrestatario() {
+            return prestatario;
+        }
+
+        public long getPrestamos() {
+            return prestamos.sum();
+        }
+
+        public long getTotalMillis() {
+            return totalNanos.sum() / 1_000_000;
+        }
+
+        public long getMaximaMillis() {
+            return maximaNanos.get() / 1_000_000;
+        }
+    }
+}
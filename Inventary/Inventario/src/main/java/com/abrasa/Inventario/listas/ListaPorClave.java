@@ -0,0 +1,222 @@
+package com.abrasa.Inventario.listas;
+
+import com.abrasa.Inventario.reportes.VersionDatos;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hibernate.annotations.QueryHints;
+import org.openxava.jpa.XPersistence;
+import org.openxava.tab.impl.DataChunk;
+import org.openxava.tab.impl.JPATabProvider;
+
+import javax.ejb.FinderException;
+import javax.persistence.TypedQuery;
+import java.rmi.RemoteException;
+import java.util.*;
+
+/**
+ * Lista de OpenXava que pagina por clave en lugar de con OFFSET.
+ *
+ * OpenXava lee las filas de una lista en bloques consecutivos y JPATabProvider pide
+ * cada bloque con setFirstResult: para el bloque N la base recorre y descarta todas
+ * las filas anteriores. Si la lista está ordenada por la clave de paginación de su
+ * entidad (CLAVES), los bloques siguientes al primero se piden a partir de la última
+ * fila leída ("fecha < :f or (fecha = :f and id < :id)"), que el índice resuelve sin
+ * pasar por las anteriores. Una lista sin orden se ordena por la clave, y una ordenada
+ * por el principio de la clave se completa con el resto para que el orden sea único.
+ * Con cualquier otro orden, o con agrupamiento, se pagina como siempre.
+ *
+ * El total que muestra la lista (showCountInList) de esas mismas entidades se guarda
+ * por consulta y parámetros: se vuelve a contar cuando cambian los datos
+ * (VersionDatos), pero no más de una vez cada VIGENCIA_CONTEO_MS, así que en un
+ * almacén con movimientos continuos el total puede ir unos segundos atrasado. Las
+ * demás listas se paginan y se cuentan como en OpenXava: VersionDatos no se entera
+ * de sus cambios.
+ *
+ * Los combos (@DescriptionsList) también se leen con una lista de OpenXava. Los de
+ * los datos de referencia (CACHEADAS) se piden como consultas cacheables en la
+ * región "referencias" de la caché de Hibernate, así que el detalle de un producto
+ * no va a la base por sus categorías y proveedores: Hibernate descarta esos
+ * resultados cuando se graba alguna fila de la tabla.
+ */
+public class ListaPorClave extends JPATabProvider {
+
+    private static final Log log = LogFactory.getLog(ListaPorClave.class);
+
+    // Propiedades que ordenan las filas de cada entidad de forma única, con índice en la
+    // base. Solo entidades cuyos cambios mueven VersionDatos (CambioDatosListener).
+    private static final Map<String, List<String>> CLAVES = new HashMap<>();
+
+    static {
+        CLAVES.put("Movimiento", Arrays.asList("fecha", "id"));
+        CLAVES.put("Producto", Collections.singletonList("codigo"));
+    }
+
+    // Datos de referencia: se leen en cada combo y cambian pocas veces al mes (ver ehcache.xml)
+    private static final Set<String> CACHEADAS = new HashSet<>(Arrays.asList("Categoria", "Proveedor", "Cliente"));
+    private static final String REGION_CACHE = "referencias";
+
+    private static final int CONTEOS_GUARDADOS = 200;
+    private static final long VIGENCIA_CONTEO_MS = 30_000;
+
+    private static final Map<String, Conteo> conteos = Collections.synchronizedMap(
+            new LinkedHashMap<String, Conteo>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Conteo> masAntiguo) {
+                    return size() > CONTEOS_GUARDADOS;
+                }
+            });
+
+    // La select de OpenXava y cómo paginarla, calculado una vez por búsqueda
+    private String selectAnalizada;
+    private Paginacion paginacion;
+
+    // Clave de la última fila leída y la posición que le sigue
+    private Object[] ultimaClave;
+    private int posicionSiguiente;
+
+    @Override
+    public void search(String condition, Object key) throws FinderException, RemoteException {
+        super.search(condition, key);
+        ultimaClave = null;
+    }
+
+    @Override
+    public void reset() throws RemoteException {
+        super.reset();
+        ultimaClave = null;
+    }
+
+    @Override
+    protected String getSelect() {
+        String select = super.getSelect();
+        if (select != null && !select.equals(selectAnalizada)) {
+            selectAnalizada = select;
+            paginacion = Paginacion.analizar(select, getClaves());
+        }
+        return paginacion != null ? paginacion.ordenada : select;
+    }
+
+    @Override
+    public DataChunk nextChunk() throws RemoteException {
+        if (getSelect() == null || paginacion == null) {
+            return CACHEADAS.contains(getMetaModel().getName()) ? bloqueCacheado() : super.nextChunk();
+        }
+        if (ultimaClave == null || getCurrent() != posicionSiguiente || isEOF() || keyHasNulls()) {
+            return recordarUltimaClave(super.nextChunk());
+        }
+
+        try {
+            // Las select de las listas traen siempre varias columnas: cada fila es un Object[]
+            TypedQuery<Object[]> consulta = XPersistence.getManager().createQuery(paginacion.desdeClave, Object[].class);
+            Object[] parametros = getKey();
+            for (int i = 0; i < parametros.length; i++) {
+                consulta.setParameter("p" + i, parametros[i]);
+            }
+            for (int i = 0; i < ultimaClave.length; i++) {
+                consulta.setParameter("clave" + i, ultimaClave[i]);
+            }
+            return recordarUltimaClave(leerBloque(consulta));
+        }
+        catch (Exception ex) {
+            log.error("Error al leer un bloque de la lista desde la clave: " + paginacion.desdeClave, ex);
+            throw new RemoteException("Error al leer la lista", ex);
+        }
+    }
+
+    /**
+     * El bloque siguiente como lo pide JPATabProvider, pero con la consulta cacheable.
+     */
+    private DataChunk bloqueCacheado() throws RemoteException {
+        if (isEOF() || keyHasNulls()) {
+            return new DataChunk(Collections.emptyList(), true, getCurrent());
+        }
+        try {
+            TypedQuery<Object[]> consulta = XPersistence.getManager().createQuery(getSelect(), Object[].class);
+            Object[] parametros = getKey();
+            for (int i = 0; i < parametros.length; i++) {
+                consulta.setParameter("p" + i, parametros[i]);
+            }
+            consulta.setFirstResult(getCurrent());
+            consulta.setHint(QueryHints.CACHEABLE, true);
+            consulta.setHint(QueryHints.CACHE_REGION, REGION_CACHE);
+            return leerBloque(consulta);
+        }
+        catch (Exception ex) {
+            log.error("Error al leer un bloque de la lista: " + getSelect(), ex);
+            throw new RemoteException("Error al leer la lista", ex);
+        }
+    }
+
+    private DataChunk leerBloque(TypedQuery<Object[]> consulta) {
+        // Una fila de más para saber si hay otro bloque
+        consulta.setMaxResults(getChunkSize() == Integer.MAX_VALUE ? Integer.MAX_VALUE : getChunkSize() + 1);
+        List<Object[]> filas = new ArrayList<>(consulta.getResultList());
+
+        setEOF(filas.size() <= getChunkSize());
+        if (!isEOF()) {
+            filas.remove(filas.size() - 1);
+        }
+        setCurrent(getCurrent() + filas.size());
+        return new DataChunk(filas, isEOF(), getCurrent());
+    }
+
+    @Override
+    public int getResultSize() throws RemoteException {
+        if (!CLAVES.containsKey(getMetaModel().getName())) {
+            return super.getResultSize();
+        }
+        String clave = getSelect() + " " + Arrays.deepToString(getKey());
+        long ahora = System.currentTimeMillis();
+        Conteo conteo = conteos.get(clave);
+        if (conteo == null || (conteo.version != VersionDatos.actual() && ahora - conteo.momento > VIGENCIA_CONTEO_MS)) {
+            // La versión se lee antes de contar: un cambio durante el conteo obliga a contar de nuevo
+            long version = VersionDatos.actual();
+            conteo = new Conteo(version, ahora, super.getResultSize());
+            conteos.put(clave, conteo);
+        }
+        return conteo.total;
+    }
+
+    private List<String> getClaves() {
+        List<String> claves = CLAVES.get(getMetaModel().getName());
+        if (claves == null) {
+            return null;
+        }
+        List<String> campos = new ArrayList<>();
+        for (String propiedad : claves) {
+            campos.add(toQueryField(propiedad));
+        }
+        return campos;
+    }
+
+    private DataChunk recordarUltimaClave(DataChunk bloque) {
+        List<?> filas = bloque.getData();
+        ultimaClave = null;
+        if (paginacion != null && !filas.isEmpty()) {
+            Object[] fila = (Object[]) filas.get(filas.size() - 1);
+            Object[] clave = new Object[paginacion.columnas.length];
+            for (int i = 0; i < clave.length; i++) {
+                clave[i] = fila[paginacion.columnas[i]];
+                if (clave[i] == null) {
+                    return bloque;
+                }
+            }
+            ultimaClave = clave;
+            posicionSiguiente = getCurrent();
+        }
+        return bloque;
+    }
+
+    private static class Conteo {
+
+        final long version;
+        final long momento;
+        final int total;
+
+        Conteo(long version, long momento, int total) {
+            this.version = version;
+            this.momento = momento;
+            this.total = total;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.abrasa.Inventario.listas;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * La select de una lista reescrita para paginar por clave (ver ListaPorClave).
+ */
+class Paginacion implements Serializable {
+
+    // La select con el orden completo de la clave
+    final String ordenada;
+    // La misma, filtrada a las filas posteriores a :clave0, :clave1...
+    final String desdeClave;
+    // Posición de cada propiedad de la clave entre las columnas de la select
+    final int[] columnas;
+
+    private Paginacion(String ordenada, String desdeClave, int[] columnas) {
+        this.ordenada = ordenada;
+        this.desdeClave = desdeClave;
+        this.columnas = columnas;
+    }
+
+    /**
+     * @return null si la select no se puede paginar por la clave.
+     */
+    static Paginacion analizar(String select, List<String> claves) {
+        if (claves == null) {
+            return null;
+        }
+        String minusculas = select.toLowerCase();
+        int from = posicion(minusculas, " from ");
+        if (!minusculas.startsWith("select ") || from < 0 || posicion(minusculas, " group by ") >= 0) {
+            return null;
+        }
+
+        int orderBy = posicion(minusculas, " order by ");
+        String cuerpo = orderBy < 0 ? select : select.substring(0, orderBy);
+        List<String> orden = orderBy < 0 ? Collections.emptyList()
+                : partir(select.substring(orderBy + " order by ".length()));
+
+        // El orden tiene que ser el principio de la clave, todo en el mismo sentido
+        boolean descendente = false;
+        if (orden.size() > claves.size()) {
+            return null;
+        }
+        for (int i = 0; i < orden.size(); i++) {
+            String[] partes = orden.get(i).trim().split("\\s+");
+            boolean desc = partes.length == 2 && partes[1].equalsIgnoreCase("desc");
+            if (partes.length > 2 || !partes[0].equals(claves.get(i))
+                    || (partes.length == 2 && !desc && !partes[1].equalsIgnoreCase("asc"))
+                    || (i > 0 && desc != descendente)) {
+                return null;
+            }
+            descendente = desc;
+        }
+
+        List<String> columnasSelect = partir(select.substring("select ".length(), from));
+        int[] columnas = new int[claves.size()];
+        for (int i = 0; i < columnas.length; i++) {
+            columnas[i] = columnasSelect.indexOf(claves.get(i));
+            if (columnas[i] < 0) {
+                return null;
+            }
+        }
+
+        String sentido = descendente ? " desc" : " asc";
+        String comparacion = descendente ? "<" : ">";
+        StringBuilder ordenClave = new StringBuilder(" order by ");
+        // Con varias propiedades, el rango sobre la primera es el que usa el índice; el resto desempata
+        StringBuilder condicion = new StringBuilder(claves.size() == 1 ? "("
+                : claves.get(0) + " " + comparacion + "= :clave0 and (");
+        for (int i = 0; i < claves.size(); i++) {
+            if (i > 0) {
+                ordenClave.append(", ");
+                condicion.append(" or ");
+            }
+            ordenClave.append(claves.get(i)).append(sentido);
+            condicion.append("(");
+            for (int j = 0; j < i; j++) {
+                condicion.append(claves.get(j)).append(" = :clave").append(j).append(" and ");
+            }
+            condicion.append(claves.get(i)).append(" ").append(comparacion).append(" :clave").append(i).append(")");
+        }
+        condicion.append(")");
+
+        // La condición de la lista va entre paréntesis por si tiene un "or"
+        int where = posicion(cuerpo.toLowerCase(), " where ");
+        String desdeClave = where < 0
+                ? cuerpo + " where " + condicion
+                : cuerpo.substring(0, where) + " where (" + cuerpo.substring(where + " where ".length()) + ") and " + condicion;
+        return new Paginacion(cuerpo + ordenClave, desdeClave + ordenClave, columnas);
+    }
+
+    /**
+     * Última aparición de la palabra fuera de paréntesis (no la de una subconsulta).
+     */
+    private static int posicion(String sql, String palabra) {
+        int encontrada = -1;
+        int nivel = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (c == '(') {
+                nivel++;
+            }
+            else if (c == ')') {
+                nivel--;
+            }
+            else if (nivel == 0 && sql.startsWith(palabra, i)) {
+                encontrada = i;
+            }
+        }
+        return encontrada;
+    }
+
+    /**
+     * Separa por las comas que no están entre paréntesis.
+     */
+    private static List<String> partir(String lista) {
+        List<String> partes = new ArrayList<>();
+        int nivel = 0;
+        int inicio = 0;
+        for (int i = 0; i < lista.length(); i++) {
+            char c = lista.charAt(i);
+            if (c == '(') {
+                nivel++;
+            }
+            else if (c == ')') {
+                nivel--;
+            }
+            else if (c == ',' && nivel == 0) {
+                partes.add(lista.substring(inicio, i).trim());
+                inicio = i + 1;
+            }
+        }
+        partes.add(lista.substring(inicio).trim());
+        return partes;
+    }
+}
@@ -0,0 +1,17 @@
+package com.abrasa.Inventario.listas;
+
+import org.openxava.component.parse.AnnotatedClassParser;
+import org.openxava.model.impl.IPersistenceProvider;
+
+/**
+ * Lee las entidades anotadas como OpenXava, pero les asigna ProveedorPersistencia
+ * para que sus listas usen ListaPorClave. Se registra en componentParsersClasses
+ * de xava.properties.
+ */
+public class ParserComponentes extends AnnotatedClassParser {
+
+    @Override
+    public IPersistenceProvider getPersistenceProvider() {
+        return ProveedorPersistencia.getInstancia();
+    }
+}
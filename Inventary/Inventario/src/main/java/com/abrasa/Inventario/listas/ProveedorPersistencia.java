@@ -0,0 +1,34 @@
+package com.abrasa.Inventario.listas;
+
+import lombok.experimental.Delegate;
+import org.openxava.model.impl.IPersistenceProvider;
+import org.openxava.model.impl.JPAPersistenceProvider;
+import org.openxava.tab.impl.ITabProvider;
+
+/**
+ * El proveedor JPA de OpenXava, salvo las listas: cada una usa ListaPorClave.
+ */
+public class ProveedorPersistencia implements IPersistenceProvider {
+
+    private static final ProveedorPersistencia instancia = new ProveedorPersistencia();
+
+    @Delegate(excludes = ConListas.class)
+    private final IPersistenceProvider jpa = JPAPersistenceProvider.getInstance();
+
+    private ProveedorPersistencia() {
+    }
+
+    public static ProveedorPersistencia getInstancia() {
+        return instancia;
+    }
+
+    @Override
+    public ITabProvider createTabProvider() {
+        return new ListaPorClave();
+    }
+
+    private interface ConListas {
+
+        ITabProvider createTabProvider();
+    }
+}
@@ -0,0 +1,20 @@
+package com.abrasa.Inventario.modelo;
+
+import lombok.*;
+import org.openxava.annotations.*;
+
+import javax.persistence.*;
+
+/**
+ * Clase transitoria (sin tabla) con las palabras que se piden en el diálogo de
+ * búsqueda de productos.
+ */
+@Getter
+@Setter
+public class BusquedaProducto {
+
+    // Por ejemplo "urea 46" o "semilla maiz hibrido"
+    @Column(length = 100)
+    @Required
+    private String texto;
+}
@@ -1,16 +1,24 @@
 package com.abrasa.Inventario.modelo;
 
+import com.abrasa.Inventario.servicios.IndiceBusquedaListener;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.openxava.annotations.*;
 
 import javax.persistence.*;
 import javax.validation.constraints.Size;
 
 /**
- * Categora de productos (fertilizantes, agroqumicos, semillas, etc.).
+ * Categoría de productos (fertilizantes, agroquímicos, semillas, etc.).
  */
 @Entity
 @Table(name = "categoria")
+// Dato de referencia: se lee en cada vista de producto y cambia muy poco (ver ehcache.xml)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+// Su nombre forma parte del texto de búsqueda de los productos
+@EntityListeners(IndiceBusquedaListener.class)
 @Getter
 @Setter
 @NoArgsConstructor
@@ -62,14 +70,14 @@ public class Categoria {
         // Nombre obligatorio y con longitud razonable
         if (nombre == null || nombre.isEmpty()) {
             throw new IllegalArgumentException(
-                    "El nombre de la categora es obligatorio");
+                    "El nombre de la categoría es obligatorio");
         }
         if (nombre.length() < 3) {
             throw new IllegalArgumentException(
-                    "El nombre de la categora debe tener al menos 3 caracteres");
+                    "El nombre de la categoría debe tener al menos 3 caracteres");
         }
 
-        // Descripcin opcional pero, si se pone, que no sea solo espacios
+        // Descripción opcional pero, si se pone, que no sea solo espacios
         if (descripcion != null) {
             descripcion = descripcion.trim();
             if (descripcion.isEmpty()) {
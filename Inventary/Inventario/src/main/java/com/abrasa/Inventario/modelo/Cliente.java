@@ -1,6 +1,8 @@
 package com.abrasa.Inventario.modelo;
 
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.openxava.annotations.*;
 
 import javax.persistence.*;
@@ -11,6 +13,8 @@ import java.math.BigDecimal;
 
 @Entity
 @Table(name = "cliente")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Getter
 @Setter
 @NoArgsConstructor
@@ -38,7 +42,7 @@ import java.math.BigDecimal;
 )
 public class Cliente {
 
-    // Identificador interno que usars en la agropecuaria: CLI-001, CLI-002, etc.
+    // Identificador interno que usarás en la agropecuaria: CLI-001, CLI-002, etc.
     @Id
     @Column(length = 15)
     @Required
@@ -56,7 +60,7 @@ public class Cliente {
     private boolean activo = true;  // Para no borrar clientes, solo desactivarlos
 
 
-    // Datos de contacto bsicos: en la agropecuaria al menos un medio debe quedar registrado
+    // Datos de contacto básicos: en la agropecuaria al menos un medio debe quedar registrado
     @Column(length = 30)
     private String telefono;
 
@@ -65,7 +69,7 @@ public class Cliente {
     private String email;
 
 
-    // Ubicacin del cliente: til para rutas de reparto y entregas en finca
+    // Ubicación del cliente: útil para rutas de reparto y entregas en finca
     @Stereotype("MEMO")
     @Column(length = 200)
     private String direccion;
@@ -77,11 +81,11 @@ public class Cliente {
     private String departamento;
 
 
-    // Informacin de crdito: muy tpica en agropecuarias que fan insumos
+    // Información de crédito: muy típica en agropecuarias que fían insumos
     @NotNull
     private boolean permiteCredito = false;
 
-    // Lmite de crdito aprobado para este cliente
+    // Límite de crédito aprobado para este cliente
     @Money
     @Digits(integer = 12, fraction = 2)
     @Column(precision = 14, scale = 2)
@@ -94,7 +98,7 @@ public class Cliente {
     private BigDecimal saldoPendiente = BigDecimal.ZERO;
 
 
-    // ================= LGICA DE NEGOCIO =================
+    // ================= LÓGICA DE NEGOCIO =================
 
     @PrePersist
     @PreUpdate
@@ -104,36 +108,36 @@ public class Cliente {
         if ((telefono == null || telefono.trim().isEmpty()) &&
                 (email == null || email.trim().isEmpty())) {
             throw new IllegalArgumentException(
-                    "El cliente debe tener al menos un telfono o un correo electrnico");
+                    "El cliente debe tener al menos un teléfono o un correo electrónico");
         }
 
-        // Si no tiene crdito, limpiar datos de crdito
+        // Si no tiene crédito, limpiar datos de crédito
         if (!permiteCredito) {
             limiteCredito = BigDecimal.ZERO;
             saldoPendiente = BigDecimal.ZERO;
-            return; // No hace falta seguir validando crdito
+            return; // No hace falta seguir validando crédito
         }
 
-        // Si tiene crdito permitido, el lmite debe ser > 0
+        // Si tiene crédito permitido, el límite debe ser > 0
         if (limiteCredito == null || limiteCredito.compareTo(BigDecimal.ZERO) <= 0) {
             throw new IllegalArgumentException(
-                    "Si el cliente tiene crdito, el lmite de crdito debe ser mayor que cero");
+                    "Si el cliente tiene crédito, el límite de crédito debe ser mayor que cero");
         }
 
         if (saldoPendiente == null) {
             saldoPendiente = BigDecimal.ZERO;
         }
 
-        // El saldo pendiente nunca puede superar el lmite
+        // El saldo pendiente nunca puede superar el límite
         if (saldoPendiente.compareTo(limiteCredito) > 0) {
             throw new IllegalArgumentException(
-                    "El saldo pendiente no puede superar el lmite de crdito del cliente");
+                    "El saldo pendiente no puede superar el límite de crédito del cliente");
         }
     }
 
     /**
-     * Regla de negocio til para facturacin a futuro:
-     * devuelve true si el cliente est bloqueado porque ya alcanz su lmite de crdito.
+     * Regla de negocio útil para facturación a futuro:
+     * devuelve true si el cliente está bloqueado porque ya alcanzó su límite de crédito.
      */
     public boolean estaBloqueadoPorDeuda() {
         return permiteCredito &&
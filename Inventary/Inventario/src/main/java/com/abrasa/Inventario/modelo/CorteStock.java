@@ -0,0 +1,51 @@
+package com.abrasa.Inventario.modelo;
+
+import lombok.*;
+import org.openxava.annotations.*;
+
+import javax.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Stock de un producto al final de un día de cierre (fin de mes), generado por
+ * CortesStock. Las consultas de stock a una fecha parten del corte anterior y
+ * solo suman los movimientos posteriores.
+ */
+@Entity
+@Table(name = "corte_stock",
+        uniqueConstraints = @UniqueConstraint(name = "uk_corte_stock_producto_fecha",
+                columnNames = { "producto_codigo", "fecha" }),
+        indexes = @Index(name = "ix_corte_stock_fecha", columnList = "fecha"))
+@Getter
+@Setter
+@NoArgsConstructor
+@Tab(
+        properties = "fecha, producto.codigo, producto.nombre, cantidad, producto.unidadMedida",
+        defaultOrder = "${fecha} desc, ${producto.codigo} asc"
+)
+public class CorteStock {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Hidden
+    private Long id;
+
+    // Sin @Required: CortesStock asigna referencias sin cargar y el validador las leería vacías
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @ReferenceView("Simple")
+    private Producto producto;
+
+    // Incluye todos los movimientos con fecha hasta este día
+    @Column(nullable = false)
+    private LocalDate fecha;
+
+    @Column(precision = 12, scale = 2, nullable = false)
+    private BigDecimal cantidad = BigDecimal.ZERO;
+
+    public CorteStock(Producto producto, LocalDate fecha, BigDecimal cantidad) {
+        this.producto = producto;
+        this.fecha = fecha;
+        this.cantidad = cantidad;
+    }
+}
@@ -0,0 +1,8 @@
+package com.abrasa.Inventario.modelo;
+
+public enum EstadoReserva {
+    ACTIVA,
+    CONFIRMADA,   // Convertida en una SALIDA
+    LIBERADA,     // Liberada a mano antes de vencer
+    VENCIDA
+}
@@ -0,0 +1,44 @@
+package com.abrasa.Inventario.modelo;
+
+import lombok.*;
+import org.openxava.annotations.*;
+
+import javax.persistence.*;
+import java.time.LocalDate;
+
+/**
+ * Clase transitoria (sin tabla) con los filtros que se piden en el diálogo
+ * antes de imprimir el historial de movimientos.
+ */
+@Getter
+@Setter
+@View(members =
+        "Periodo[" +
+                "   fechaDesde; fechaHasta;" +
+                "] " +
+                "Filtros[" +
+                "   producto; proveedor; tipoMovimiento;" +
+                "]"
+)
+public class FiltroHistorialMovimientos {
+
+    @Required
+    private LocalDate fechaDesde = LocalDate.now().withDayOfMonth(1);
+
+    @Required
+    private LocalDate fechaHasta = LocalDate.now();
+
+    // Vacío = todos los productos
+    @ManyToOne(fetch = FetchType.LAZY)
+    @DescriptionsList(descriptionProperties = "codigo, nombre")
+    private Producto producto;
+
+    // Vacío = todos los proveedores
+    @ManyToOne(fetch = FetchType.LAZY)
+    @DescriptionsList(descriptionProperties = "nombreComercial, nombreLegal")
+    private Proveedor proveedor;
+
+    // Vacío = entradas y salidas
+    @Stereotype("ENUMERATION")
+    private TipoMovimiento tipoMovimiento;
+}
@@ -0,0 +1,35 @@
+package com.abrasa.Inventario.modelo;
+
+import lombok.*;
+import org.openxava.annotations.*;
+
+import javax.persistence.*;
+import java.time.LocalDate;
+
+/**
+ * Clase transitoria (sin tabla) con el período y el producto que se piden en el
+ * diálogo antes de imprimir el kardex.
+ */
+@Getter
+@Setter
+@View(members =
+        "Periodo[" +
+                "   fechaDesde; fechaHasta;" +
+                "] " +
+                "Filtros[" +
+                "   producto;" +
+                "]"
+)
+public class FiltroKardex {
+
+    @Required
+    private LocalDate fechaDesde = LocalDate.now().withDayOfMonth(1);
+
+    @Required
+    private LocalDate fechaHasta = LocalDate.now();
+
+    // Vacío = todos los productos con movimientos en el período
+    @ManyToOne(fetch = FetchType.LAZY)
+    @DescriptionsList(descriptionProperties = "codigo, nombre")
+    private Producto producto;
+}
@@ -1,6 +1,11 @@
 package com.abrasa.Inventario.modelo;
 
+import com.abrasa.Inventario.reportes.CambioDatosListener;
+import com.abrasa.Inventario.reportes.FilaKardex;
+import com.abrasa.Inventario.servicios.CortesStock;
+import com.abrasa.Inventario.servicios.LibroStock;
 import lombok.*;
+import org.hibernate.Hibernate;
 import org.openxava.annotations.*;
 
 import javax.persistence.*;
@@ -10,7 +15,43 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 
 @Entity
-@Table(name = "movimiento")
+// Índices para los filtros por período y producto del historial, para sumar
+// los movimientos de cada producto sin leer la tabla (ConciliadorStock) y para
+// paginar la lista por (fecha, id) (ListaPorClave)
+@Table(name = "movimiento",
+        indexes = {
+                @Index(name = "ix_movimiento_fecha_producto", columnList = "fecha, producto_codigo"),
+                @Index(name = "ix_movimiento_fecha_id", columnList = "fecha, id"),
+                @Index(name = "ix_movimiento_producto", columnList = "producto_codigo, tipoMovimiento, cantidad")
+        })
+// Lo que necesitan los reportes de movimientos: producto y proveedor en la misma consulta
+@NamedEntityGraph(
+        name = "Movimiento.conProductoYProveedor",
+        attributeNodes = {
+                @NamedAttributeNode("producto"),
+                @NamedAttributeNode("proveedor")
+        }
+)
+// Filas del kardex (ver PrintKardexAction), leídas por nombre de columna de la consulta nativa
+@SqlResultSetMapping(
+        name = "Movimiento.kardex",
+        classes = @ConstructorResult(
+                targetClass = FilaKardex.class,
+                columns = {
+                        @ColumnResult(name = "codigoProducto", type = String.class),
+                        @ColumnResult(name = "nombreProducto", type = String.class),
+                        @ColumnResult(name = "unidadMedida", type = String.class),
+                        @ColumnResult(name = "fecha", type = LocalDate.class),
+                        @ColumnResult(name = "tipoMovimiento", type = String.class),
+                        @ColumnResult(name = "cantidad", type = BigDecimal.class),
+                        @ColumnResult(name = "saldoAnterior", type = BigDecimal.class),
+                        @ColumnResult(name = "saldo", type = BigDecimal.class),
+                        @ColumnResult(name = "observaciones", type = String.class)
+                }
+        )
+)
+// Los reportes ya generados dejan de valer cuando cambian los movimientos
+@EntityListeners(CambioDatosListener.class)
 @Getter
 @Setter
 @NoArgsConstructor
@@ -19,7 +60,7 @@ import java.time.LocalDate;
         name = "Simple",
         members =
                 "DatosMovimiento[" +
-                        "   producto; tipoMovimiento; fecha; cantidad;" +
+                        "   producto; tipoMovimiento; fecha; cantidad; costoUnitario;" +
                         "] " +
                         "Relacion[" +
                         "   proveedor; observaciones;" +
@@ -27,7 +68,7 @@ import java.time.LocalDate;
 )
 @Tab(
         name = "Movimientos",
-        properties = "fecha, tipoMovimiento, producto.codigo, producto.nombre, cantidad, proveedor.nombreComercial"
+        properties = "fecha, tipoMovimiento, producto.codigo, producto.nombre, cantidad, costoUnitario, proveedor.nombreComercial"
 )
 public class Movimiento {
 
@@ -36,13 +77,13 @@ public class Movimiento {
     private Long id;
 
     // Producto afectado por el movimiento
-    @ManyToOne(optional = false)
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
     @ReferenceView("Simple")
     @Required
     private Producto producto;
 
     // Proveedor (solo tiene sentido para ENTRADA, pero lo dejamos opcional)
-    @ManyToOne(optional = true)
+    @ManyToOne(fetch = FetchType.LAZY, optional = true)
     @ReferenceView("Simple")
     private Proveedor proveedor;
 
@@ -59,12 +100,18 @@ public class Movimiento {
     @Column(precision = 12, scale = 2)
     private BigDecimal cantidad = BigDecimal.ONE;
 
+    // En una ENTRADA, el costo de compra (si se deja vacío, el precio de compra del producto);
+    // en una SALIDA lo pone LibroStock: el costo promedio con que salió del stock
+    @Digits(integer = 8, fraction = 4)
+    @Column(precision = 12, scale = 4)
+    private BigDecimal costoUnitario;
+
     @Stereotype("MEMO")
     @Column(length = 200)
     private String observaciones;
 
 
-    // ================= LGICA DE NEGOCIO =================
+    // ================= LÓGICA DE NEGOCIO =================
 
     @PrePersist
     private void aplicarMovimientoSobreStock() {
@@ -77,41 +124,51 @@ public class Movimiento {
             throw new IllegalArgumentException("La cantidad del movimiento debe ser mayor que cero");
         }
 
-        BigDecimal stockActual = producto.getStockActual() == null
-                ? BigDecimal.ZERO
-                : producto.getStockActual();
-
-        switch (tipoMovimiento) {
-
-            case ENTRADA:
-                // Aumenta el stock
-                producto.setStockActual(
-                        stockActual.add(cantidad).setScale(2, BigDecimal.ROUND_HALF_UP)
-                );
-                break;
-
-            case SALIDA:
-                // Valida que haya stock suficiente
-                if (stockActual.compareTo(cantidad) < 0) {
-                    throw new IllegalArgumentException(
-                            "No hay stock suficiente del producto "
-                                    + producto.getNombre()
-                                    + " para realizar la salida"
-                    );
-                }
-                producto.setStockActual(
-                        stockActual.subtract(cantidad).setScale(2, BigDecimal.ROUND_HALF_UP)
-                );
-                break;
+        if (costoUnitario != null && costoUnitario.signum() < 0) {
+            throw new IllegalArgumentException("El costo unitario del movimiento no puede ser negativo");
+        }
 
-            default:
-                throw new IllegalArgumentException("Tipo de movimiento no soportado");
+        if (tipoMovimiento == TipoMovimiento.ENTRADA && costoUnitario == null) {
+            costoUnitario = producto.getPrecioCompra();
         }
+
+        BigDecimal cantidadRedondeada = cantidad.setScale(2, BigDecimal.ROUND_HALF_UP);
+
+        // El stock y la valoración se actualizan con un UPDATE atómico: sin leer-sumar-escribir en Java
+        LibroStock.registrar(
+                producto,
+                tipoMovimiento,
+                cantidadRedondeada,
+                costoUnitario
+        );
+
+        if (tipoMovimiento == TipoMovimiento.SALIDA) {
+            costoUnitario = producto.getCostoPromedio();
+        }
+
+        // Un movimiento con fecha de un mes ya cerrado corrige los cortes desde esa fecha
+        CortesStock.ajustar(producto.getCodigo(), tipoMovimiento, cantidadRedondeada, fecha);
+    }
+
+    // Los movimientos solo se agregan: para corregir uno se registra otro en sentido contrario
+
+    @PreUpdate
+    private void impedirModificacion() {
+        throw new IllegalArgumentException(
+                "Los movimientos no se pueden modificar; registre un movimiento de ajuste");
+    }
+
+    @PreRemove
+    private void impedirEliminacion() {
+        throw new IllegalArgumentException(
+                "Los movimientos no se pueden eliminar; registre un movimiento de ajuste");
     }
 
     @Override
     public String toString() {
+        // El código sale del proxy sin consultar; la unidad solo si el producto ya está cargado
+        String unidad = Hibernate.isInitialized(producto) ? " " + producto.getUnidadMedida() : "";
         return fecha + " - " + tipoMovimiento + " - "
-                + producto.getCodigo() + " (" + cantidad + " " + producto.getUnidadMedida() + ")";
+                + producto.getCodigo() + " (" + cantidad + unidad + ")";
     }
 }
@@ -1,8 +1,13 @@
 package com.abrasa.Inventario.modelo;
 
+import com.abrasa.Inventario.reportes.CambioDatosListener;
+import com.abrasa.Inventario.servicios.IndiceBusquedaListener;
+import com.abrasa.Inventario.servicios.LibroStock;
+
 import java.math.BigDecimal;
 import javax.persistence.*;
 import javax.validation.constraints.Digits;
+import javax.validation.constraints.NotNull;
 
 import lombok.Getter;
 import lombok.Setter;
@@ -12,7 +17,10 @@ import org.openxava.annotations.*;
  * Entidad JPA + OpenXava que representa un producto del inventario.
  */
 @Entity
-@Table(name = "producto")
+@Table(name = "producto",
+        indexes = @Index(name = "ix_producto_bajo_minimo", columnList = "bajoMinimo, activo"))
+// Los reportes ya generados dejan de valer cuando cambian los productos
+@EntityListeners({ CambioDatosListener.class, IndiceBusquedaListener.class })
 @Getter
 @Setter
 @View(name = "Simple",
@@ -22,7 +30,10 @@ import org.openxava.annotations.*;
                         "   descripcion;" +
                         "] " +
                         "Inventario[" +
-                        "   unidadMedida; stockActual; stockMinimo; " +
+                        "   unidadMedida; stockActual; stockReservado, stockDisponible; stockMinimo; " +
+                        "] " +
+                        "Valoracion[" +
+                        "   costoPromedio; valorInventario; " +
                         "] " +
                         "Precios[" +
                         "   precioCompra; precioVenta; iva;" +
@@ -36,9 +47,25 @@ import org.openxava.annotations.*;
                         "proveedor.nombreComercial, " +
                         "unidadMedida, stockActual, stockMinimo, precioVenta"
 )
+@Tab(name = "BajoMinimo",
+        baseCondition = "activo = true and bajoMinimo = true",
+        properties =
+                "codigo, nombre, tipo, " +
+                        "proveedor.nombreComercial, " +
+                        "unidadMedida, stockActual, stockMinimo, precioCompra",
+        defaultOrder = "${proveedor.nombreComercial} asc, ${nombre} asc"
+)
+// Lee los totales que mantiene LibroStock, sin recorrer los movimientos
+@Tab(name = "Valoracion",
+        baseCondition = "activo = true",
+        properties =
+                "codigo, nombre, categoria.nombre, unidadMedida, " +
+                        "stockActual, costoPromedio, valorInventario+",
+        defaultOrder = "${valorInventario} desc"
+)
 public class Producto {
 
-    // 1) Identificacin
+    // 1) Identificación
     @Id
     @Column(length = 15)
     @Required
@@ -60,14 +87,20 @@ public class Producto {
     @Required
     private boolean activo = true;
 
-    // -------- Categora --------
-    @ManyToOne(optional = false)
+    // Código, nombre, tipo, descripción y categoría normalizados para BusquedaProductos;
+    // lo calcula IndiceBusquedaListener al grabar
+    @Column(length = 400)
+    @Hidden
+    private String textoBusqueda;
+
+    // -------- Categoría --------
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
     @DescriptionsList(descriptionProperties = "nombre")   // Campo de Categoria
     @Required
     private Categoria categoria;
 
     // -------- Proveedor --------
-    @ManyToOne(optional = false)
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
     @DescriptionsList(descriptionProperties = "nombreComercial, nombreLegal")
     @NoCreate
     @NoModify
@@ -79,16 +112,33 @@ public class Producto {
     @Required
     private String unidadMedida;
 
+    // Solo lo modifican los movimientos (ver LibroStock); nunca se escribe al grabar el producto
     @Digits(integer = 10, fraction = 2)
-    @Column(precision = 12, scale = 2)
-    @Required
+    @Column(precision = 12, scale = 2, updatable = false)
+    @ReadOnly
+    @NotNull
     private BigDecimal stockActual = BigDecimal.ZERO;
 
+    // Lo apartado por las reservas activas (ver ReservasStock); como stockActual, solo
+    // cambia con sentencias UPDATE atómicas y nunca al grabar el producto
+    @Digits(integer = 10, fraction = 2)
+    @Column(precision = 12, scale = 2, updatable = false)
+    @ReadOnly
+    @NotNull
+    private BigDecimal stockReservado = BigDecimal.ZERO;
+
     @Digits(integer = 10, fraction = 2)
     @Column(precision = 12, scale = 2)
     @Required
     private BigDecimal stockMinimo = BigDecimal.ZERO;
 
+    // stockActual < stockMinimo, guardado en una columna indexada para listar lo que hay que reponer
+    // sin comparar columna contra columna en todo el catálogo. La recalculan en la base LibroStock, con
+    // el mismo UPDATE que cambia el stock, y despuesDeActualizar; al grabar el producto no se escribe.
+    @Column(columnDefinition = "boolean default false not null", updatable = false)
+    @Hidden
+    private boolean bajoMinimo;
+
     // 4) Precios
     @Money
     @Digits(integer = 10, fraction = 2)
@@ -106,8 +156,57 @@ public class Producto {
     @Column(precision = 5, scale = 2)
     private BigDecimal iva = new BigDecimal("15.00");
 
+    // 5) Valoración por costo promedio ponderado
+    // Como stockActual, solo los modifica LibroStock con cada movimiento. Null en los productos
+    // anteriores a la valoración hasta su primer movimiento (o LibroStock.inicializarValoracion)
+    @Digits(integer = 10, fraction = 4)
+    @Column(precision = 14, scale = 4, updatable = false)
+    @ReadOnly
+    private BigDecimal costoPromedio;
+
+    @Money
+    @Digits(integer = 14, fraction = 2)
+    @Column(precision = 16, scale = 2, updatable = false)
+    @ReadOnly
+    private BigDecimal valorInventario;
+
+    // Lo que todavía se puede reservar o sacar con una SALIDA
+    @Depends("stockActual, stockReservado")
+    @Digits(integer = 10, fraction = 2)
+    public BigDecimal getStockDisponible() {
+        if (stockActual == null) {
+            return null;
+        }
+        return stockReservado == null ? stockActual : stockActual.subtract(stockReservado);
+    }
+
     // ===== Reglas de negocio =====
+    @PrePersist
+    private void antesDeCrear() {
+        marcarBajoMinimo();
+        // Sin entradas todavía, el costo de partida es el precio de compra
+        if (costoPromedio == null) {
+            costoPromedio = precioCompra;
+            valorInventario = stockActual.multiply(precioCompra);
+        }
+    }
+
     @PreUpdate
+    private void antesDeActualizar() {
+        validarPrecios();
+    }
+
+    // Al editar el producto puede cambiar stockMinimo. La marca se calcula con el stock de
+    // la fila y no con el de esta instancia, que puede haber quedado atrás de los UPDATE de LibroStock
+    @PostUpdate
+    private void despuesDeActualizar() {
+        LibroStock.marcarBajoMinimo(codigo, stockMinimo);
+    }
+
+    private void marcarBajoMinimo() {
+        bajoMinimo = stockActual != null && stockMinimo != null && stockActual.compareTo(stockMinimo) < 0;
+    }
+
     private void validarPrecios() {
         if (precioCompra != null && precioVenta != null &&
                 precioVenta.compareTo(precioCompra) < 0) {
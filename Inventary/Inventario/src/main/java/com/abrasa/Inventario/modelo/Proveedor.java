@@ -1,6 +1,9 @@
 package com.abrasa.Inventario.modelo;
 
+import com.abrasa.Inventario.reportes.CambioDatosListener;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.openxava.annotations.*;
 
 import javax.persistence.*;
@@ -11,6 +14,11 @@ import java.math.BigDecimal;
 
 @Entity
 @Table(name = "proveedor")
+// Dato de referencia: lo resuelven cada producto y cada movimiento (ver ehcache.xml)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+// Su nombre comercial sale en el reporte de historial de movimientos
+@EntityListeners(CambioDatosListener.class)
 @Getter
 @Setter
 @NoArgsConstructor
@@ -44,7 +52,7 @@ public class Proveedor {
     @Required
     private String codigo;
 
-    // Razn social / nombre legal de la empresa
+    // Razón social / nombre legal de la empresa
     @Required
     @Column(length = 120)
     private String nombreLegal;
@@ -53,7 +61,7 @@ public class Proveedor {
     @Column(length = 120)
     private String nombreComercial;
 
-    // Tipo de proveedor: Agroqumicos, semillas, veterinaria, transporte, etc.
+    // Tipo de proveedor: Agroquímicos, semillas, veterinaria, transporte, etc.
     @Required
     @Column(length = 40)
     private String tipoProveedor;
@@ -78,7 +86,7 @@ public class Proveedor {
     private String sitioWeb;
 
 
-    // ----------------- Ubicacin -----------------
+    // ----------------- Ubicación -----------------
 
     @Stereotype("MEMO")
     @Column(length = 200)
@@ -94,18 +102,18 @@ public class Proveedor {
     private String pais = "Nicaragua";
 
 
-    // ---------- Condiciones de pago / crdito ----------
+    // ---------- Condiciones de pago / crédito ----------
 
-    // Si el proveedor nos otorga crdito (30 das, 45 das, etc.)
+    // Si el proveedor nos otorga crédito (30 días, 45 días, etc.)
     @NotNull
     private boolean manejaCredito = false;
 
-    // Plazo de crdito en das (ej. 30, 45). Solo tiene sentido si manejaCredito = true
+    // Plazo de crédito en días (ej. 30, 45). Solo tiene sentido si manejaCredito = true
     @Digits(integer = 5, fraction = 0)
     @Column(name = "plazo_credito_dias")
     private Integer plazoCreditoDias = 0;
 
-    // Monto mximo que el proveedor nos permite deberle
+    // Monto máximo que el proveedor nos permite deberle
     @Money
     @Digits(integer = 12, fraction = 2)
     @Column(precision = 14, scale = 2)
@@ -118,52 +126,52 @@ public class Proveedor {
     private BigDecimal saldoPendiente = BigDecimal.ZERO;
 
 
-    // ================= LGICA DE NEGOCIO =================
+    // ================= LÓGICA DE NEGOCIO =================
 
     @PrePersist
     @PreUpdate
     private void validarProveedor() {
 
-        // Al menos un medio de contacto (telfono, celular o correo)
+        // Al menos un medio de contacto (teléfono, celular o correo)
         boolean sinTelefono = (telefono == null || telefono.trim().isEmpty());
         boolean sinCelular  = (celular  == null || celular.trim().isEmpty());
         boolean sinEmail    = (email    == null || email.trim().isEmpty());
 
         if (sinTelefono && sinCelular && sinEmail) {
             throw new IllegalArgumentException(
-                    "El proveedor debe tener al menos un telfono, celular o correo electrnico");
+                    "El proveedor debe tener al menos un teléfono, celular o correo electrónico");
         }
 
-        // Si no maneja crdito, limpiar datos de crdito
+        // Si no maneja crédito, limpiar datos de crédito
         if (!manejaCredito) {
             plazoCreditoDias = 0;
             limiteCredito = BigDecimal.ZERO;
             if (saldoPendiente == null) {
                 saldoPendiente = BigDecimal.ZERO;
             }
-            // No seguimos validando reglas de crdito
+            // No seguimos validando reglas de crédito
             return;
         }
 
-        // Si maneja crdito, el plazo debe ser > 0 y el lmite > 0
+        // Si maneja crédito, el plazo debe ser > 0 y el límite > 0
         if (plazoCreditoDias == null || plazoCreditoDias <= 0) {
             throw new IllegalArgumentException(
-                    "Si el proveedor maneja crdito, el plazo de crdito en das debe ser mayor que cero");
+                    "Si el proveedor maneja crédito, el plazo de crédito en días debe ser mayor que cero");
         }
 
         if (limiteCredito == null || limiteCredito.compareTo(BigDecimal.ZERO) <= 0) {
             throw new IllegalArgumentException(
-                    "Si el proveedor maneja crdito, el lmite de crdito debe ser mayor que cero");
+                    "Si el proveedor maneja crédito, el límite de crédito debe ser mayor que cero");
         }
 
         if (saldoPendiente == null) {
             saldoPendiente = BigDecimal.ZERO;
         }
 
-        // No podemos deberle al proveedor ms de lo que nos autoriza
+        // No podemos deberle al proveedor más de lo que nos autoriza
         if (saldoPendiente.compareTo(limiteCredito) > 0) {
             throw new IllegalArgumentException(
-                    "El saldo pendiente con el proveedor no puede superar su lmite de crdito");
+                    "El saldo pendiente con el proveedor no puede superar su límite de crédito");
         }
     }
 
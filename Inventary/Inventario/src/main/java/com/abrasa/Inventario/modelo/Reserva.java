@@ -0,0 +1,133 @@
+package com.abrasa.Inventario.modelo;
+
+import com.abrasa.Inventario.servicios.ReservasStock;
+import lombok.Getter;
+import lombok.Setter;
+import org.openxava.annotations.*;
+
+import javax.persistence.*;
+import javax.validation.constraints.Digits;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Cantidad de un producto apartada para una venta pendiente (cotización, pedido).
+ *
+ * Mientras está ACTIVA cuenta en Producto.stockReservado, así que ninguna otra
+ * reserva ni SALIDA puede tomarla. Termina confirmada (se convierte en una SALIDA),
+ * liberada a mano o vencida; ver ReservasStock.
+ */
+@Entity
+// Índices para liberar las vencidas y para las activas de un producto (ReservasStock)
+@Table(name = "reserva",
+        indexes = {
+                @Index(name = "ix_reserva_estado_vence", columnList = "estado, vence"),
+                @Index(name = "ix_reserva_producto_estado", columnList = "producto_codigo, estado")
+        })
+@Getter
+@Setter
+@View(members =
+        "Reserva[" +
+                "   producto; cantidad; cliente; vence;" +
+                "] " +
+                "Estado[" +
+                "   estado; creada; finalizada; movimiento;" +
+                "] " +
+                "observaciones"
+)
+@Tab(
+        properties = "id, producto.codigo, producto.nombre, cantidad, producto.unidadMedida, cliente.nombre, creada, vence, estado",
+        defaultOrder = "${id} desc"
+)
+public class Reserva {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @ReferenceView("Simple")
+    @Required
+    private Producto producto;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @DescriptionsList(descriptionProperties = "nombre")
+    private Cliente cliente;
+
+    @Required
+    @Digits(integer = 10, fraction = 2)
+    @Column(precision = 12, scale = 2)
+    private BigDecimal cantidad = BigDecimal.ONE;
+
+    @ReadOnly
+    private LocalDateTime creada;
+
+    // Si se deja vacío, ReservasStock.DURACION_POR_DEFECTO después de crearla
+    private LocalDateTime vence;
+
+    // Solo lo cambia ReservasStock, con un UPDATE condicionado al estado anterior
+    @ReadOnly
+    @Enumerated(EnumType.STRING)
+    @Column(length = 10, updatable = false)
+    private EstadoReserva estado = EstadoReserva.ACTIVA;
+
+    // Cuándo se confirmó, liberó o venció
+    @ReadOnly
+    @Column(updatable = false)
+    private LocalDateTime finalizada;
+
+    // La SALIDA en que se convirtió al confirmarla
+    @ManyToOne(fetch = FetchType.LAZY)
+    @ReferenceView("Simple")
+    @ReadOnly
+    @JoinColumn(updatable = false)
+    private Movimiento movimiento;
+
+    @Stereotype("MEMO")
+    @Column(length = 200)
+    private String observaciones;
+
+
+    // ================= LÓGICA DE NEGOCIO =================
+
+    @PrePersist
+    private void retenerStock() {
+
+        if (producto == null) {
+            throw new IllegalArgumentException("Debe seleccionar un producto para la reserva");
+        }
+
+        if (cantidad == null || cantidad.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new IllegalArgumentException("La cantidad de la reserva debe ser mayor que cero");
+        }
+
+        creada = LocalDateTime.now();
+        if (vence == null) {
+            vence = creada.plus(ReservasStock.DURACION_POR_DEFECTO);
+        }
+        if (!vence.isAfter(creada)) {
+            throw new IllegalArgumentException("El vencimiento de la reserva debe ser posterior a este momento");
+        }
+        estado = EstadoReserva.ACTIVA;
+        finalizada = null;
+        movimiento = null;
+        cantidad = cantidad.setScale(2, BigDecimal.ROUND_HALF_UP);
+
+        // Como la SALIDA, con un UPDATE condicionado: falla si el disponible no alcanza
+        ReservasStock.retener(producto, cantidad);
+    }
+
+    // Para cambiar una reserva se libera y se registra otra
+
+    @PreUpdate
+    private void impedirModificacion() {
+        throw new IllegalArgumentException(
+                "Las reservas no se pueden modificar; libere esta y registre otra");
+    }
+
+    @PreRemove
+    private void impedirEliminacion() {
+        throw new IllegalArgumentException(
+                "Las reservas no se pueden eliminar; libérela para devolver la cantidad al disponible");
+    }
+}
@@ -0,0 +1,18 @@
+package com.abrasa.Inventario.reportes;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/**
+ * Avisa a VersionDatos de los cambios en las entidades que salen en los reportes.
+ */
+public class CambioDatosListener {
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void registrarCambio(Object entidad) {
+        VersionDatos.incrementarAlConfirmar();
+    }
+}
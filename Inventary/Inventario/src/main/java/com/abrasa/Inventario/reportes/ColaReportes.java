@@ -0,0 +1,220 @@
+package com.abrasa.Inventario.reportes;
+
+import net.sf.jasperreports.engine.*;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openxava.jpa.XPersistence;
+
+import javax.servlet.http.HttpSession;
+import java.io.Closeable;
+import java.io.File;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Genera los reportes PDF fuera del hilo de la petición.
+ *
+ * Las acciones de impresión encolan un TrabajoReporte y vuelven enseguida; un
+ * grupo fijo de hilos llena el reporte y deja el PDF en un directorio temporal,
+ * de donde lo sirve DescargarReporteServlet. Si llega un pedido idéntico a uno
+ * que todavía se está generando, se devuelve el mismo trabajo en lugar de
+ * generarlo otra vez.
+ *
+ * Los PDF terminados se guardan con la VersionDatos del momento del pedido: mientras
+ * no cambien productos ni movimientos, el mismo reporte con los mismos parámetros se
+ * entrega desde el disco sin tocar la base. Se borran cuando pasa el tiempo de
+ * vida sin que nadie los pida.
+ */
+public class ColaReportes {
+
+    private static final Log log = LogFactory.getLog(ColaReportes.class);
+
+    private static final int HILOS = 2;
+    // Si la cola está llena se rechaza el pedido en lugar de acumular trabajo sin límite
+    private static final int CAPACIDAD_COLA = 20;
+    private static final Duration TIEMPO_DE_VIDA = Duration.ofHours(2);
+
+    private static final String TRABAJOS_DE_SESION = "inventario.reportes";
+
+    private static final File DIRECTORIO = new File(System.getProperty("java.io.tmpdir"), "inventario-reportes");
+
+    private static final Map<String, TrabajoReporte> trabajos = new ConcurrentHashMap<>();
+    private static final Map<String, TrabajoReporte> enCurso = new ConcurrentHashMap<>();
+    private static final Map<String, TrabajoReporte> generados = new ConcurrentHashMap<>();
+
+    private static final ThreadPoolExecutor generadores = new ThreadPoolExecutor(
+            HILOS, HILOS, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(CAPACIDAD_COLA), hilos("reportes"));
+
+    private static final ScheduledExecutorService limpieza = Executors.newSingleThreadScheduledExecutor(hilos("reportes-limpieza"));
+
+    static {
+        DIRECTORIO.mkdirs();
+        // Los archivos de una ejecución anterior ya no tienen trabajo que los referencie
+        File[] anteriores = DIRECTORIO.listFiles();
+        if (anteriores != null) {
+            for (File archivo : anteriores) {
+                archivo.delete();
+            }
+        }
+        limpieza.scheduleWithFixedDelay(ColaReportes::borrarVencidos, 5, 5, TimeUnit.MINUTES);
+    }
+
+    private ColaReportes() {
+    }
+
+    /**
+     * Encola el reporte, o devuelve el trabajo en curso o ya generado con el mismo
+     * reporte, parámetros y versión de los datos.
+     *
+     * @param fuenteDatos se ejecuta en el hilo de la cola, con su propio EntityManager;
+     *                    si devuelve un Closeable se cierra al terminar de llenar el reporte.
+     * @throws RejectedExecutionException si la cola está llena.
+     */
+    public static TrabajoReporte encolar(String jrxml, Map<String, Object> parametros, String nombreArchivo,
+                                         Callable<JRDataSource> fuenteDatos) {
+        long versionDatos = VersionDatos.actual();
+        String firma = jrxml + new TreeMap<>(parametros) + "@" + versionDatos;
+
+        TrabajoReporte generado = generados.get(firma);
+        if (generado != null && generado.getArchivo().exists()) {
+            generado.usar();
+            return generado;
+        }
+
+        return enCurso.computeIfAbsent(firma, f -> {
+            TrabajoReporte trabajo = new TrabajoReporte(jrxml, new HashMap<>(parametros), nombreArchivo, f, versionDatos);
+            trabajos.put(trabajo.getId(), trabajo);
+            try {
+                generadores.execute(() -> generar(trabajo, fuenteDatos));
+            }
+            catch (RejectedExecutionException ex) {
+                trabajos.remove(trabajo.getId());
+                throw ex;
+            }
+            return trabajo;
+        });
+    }
+
+    public static TrabajoReporte buscar(String id) {
+        return id == null ? null : trabajos.get(id);
+    }
+
+    // ================= Trabajos de cada usuario =================
+
+    /**
+     * Anota el trabajo en la sesión: solo quien lo pidió puede descargarlo.
+     */
+    @SuppressWarnings("unchecked")
+    public static void registrarEnSesion(HttpSession sesion, TrabajoReporte trabajo) {
+        synchronized (sesion) {
+            Deque<String> ids = (Deque<String>) sesion.getAttribute(TRABAJOS_DE_SESION);
+            if (ids == null) {
+                ids = new ArrayDeque<>();
+                sesion.setAttribute(TRABAJOS_DE_SESION, ids);
+            }
+            ids.remove(trabajo.getId());
+            ids.addLast(trabajo.getId());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public static boolean perteneceASesion(HttpSession sesion, String id) {
+        synchronized (sesion) {
+            Deque<String> ids = (Deque<String>) sesion.getAttribute(TRABAJOS_DE_SESION);
+            return ids != null && ids.contains(id);
+        }
+    }
+
+    /**
+     * El último reporte pedido en la sesión que todavía no venció, o null.
+     */
+    @SuppressWarnings("unchecked")
+    public static TrabajoReporte ultimoDeSesion(HttpSession sesion) {
+        synchronized (sesion) {
+            Deque<String> ids = (Deque<String>) sesion.getAttribute(TRABAJOS_DE_SESION);
+            if (ids == null) {
+                return null;
+            }
+            ids.removeIf(id -> !trabajos.containsKey(id));
+            return ids.isEmpty() ? null : trabajos.get(ids.getLast());
+        }
+    }
+
+    /**
+     * Detiene los hilos de la cola; lo llama InicioAplicacionListener al bajar la aplicación.
+     */
+    public static void detener() {
+        generadores.shutdownNow();
+        limpieza.shutdownNow();
+    }
+
+    // ================= Generación =================
+
+    private static void generar(TrabajoReporte trabajo, Callable<JRDataSource> fuenteDatos) {
+        trabajo.generando();
+        JRDataSource datos = null;
+        try {
+            JasperReport plantilla = PlantillasReporte.obtener(trabajo.getJrxml());
+            datos = fuenteDatos.call();
+            JasperPrint impreso = JasperFillManager.fillReport(plantilla, new HashMap<>(trabajo.getParametros()), datos);
+            File archivo = new File(DIRECTORIO, trabajo.getId() + ".pdf");
+            JasperExportManager.exportReportToPdfFile(impreso, archivo.getPath());
+            XPersistence.commit();
+            trabajo.terminar(archivo);
+            generados.put(trabajo.getFirma(), trabajo);
+        }
+        catch (Exception ex) {
+            log.error("Error al generar el reporte " + trabajo.getJrxml(), ex);
+            XPersistence.rollback();
+            trabajo.fallar(ex.getMessage());
+        }
+        finally {
+            if (datos instanceof Closeable) {
+                try {
+                    ((Closeable) datos).close();
+                }
+                catch (Exception ex) {
+                    log.warn("No se pudo cerrar la fuente de datos del reporte " + trabajo.getJrxml(), ex);
+                }
+            }
+            // El hilo se reutiliza: no debe quedarle un EntityManager abierto
+            XPersistence.reset();
+            enCurso.remove(trabajo.getFirma(), trabajo);
+        }
+    }
+
+    private static void borrarVencidos() {
+        Instant limite = Instant.now().minus(TIEMPO_DE_VIDA);
+        long versionActual = VersionDatos.actual();
+        trabajos.values().removeIf(trabajo -> {
+            if (trabajo.isPendiente()) {
+                return false;
+            }
+            // Con datos viejos ya no se vuelve a entregar, pero quien lo pidió todavía puede descargarlo
+            if (trabajo.getVersionDatos() != versionActual) {
+                generados.remove(trabajo.getFirma(), trabajo);
+            }
+            if (trabajo.getUltimoUso().isAfter(limite)) {
+                return false;
+            }
+            generados.remove(trabajo.getFirma(), trabajo);
+            if (trabajo.getArchivo() != null) {
+                trabajo.getArchivo().delete();
+            }
+            return true;
+        });
+    }
+
+    private static ThreadFactory hilos(String nombre) {
+        AtomicInteger numero = new AtomicInteger();
+        return tarea -> {
+            Thread hilo = new Thread(tarea, nombre + "-" + numero.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        };
+    }
+}
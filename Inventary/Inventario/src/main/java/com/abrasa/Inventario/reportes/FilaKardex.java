@@ -0,0 +1,24 @@
+package com.abrasa.Inventario.reportes;
+
+import lombok.Value;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Un movimiento del kardex con el saldo del producto antes y después de él,
+ * tal como lo devuelve la consulta de PrintKardexAction (mapeo "Movimiento.kardex").
+ */
+@Value
+public class FilaKardex {
+
+    String codigoProducto;
+    String nombreProducto;
+    String unidadMedida;
+    LocalDate fecha;
+    String tipoMovimiento;
+    BigDecimal cantidad;
+    BigDecimal saldoAnterior;
+    BigDecimal saldo;
+    String observaciones;
+}
@@ -0,0 +1,22 @@
+package com.abrasa.Inventario.reportes;
+
+import lombok.Value;
+
+import java.math.BigDecimal;
+
+/**
+ * Fila inmutable del catálogo de productos: solo las columnas que usa
+ * ProductoDetalle.jrxml, sin categoría, proveedor ni estado de Hibernate.
+ */
+@Value
+public class FilaReporteProducto {
+
+    String codigo;
+    String nombre;
+    String tipo;
+    BigDecimal stockActual;
+    BigDecimal stockMinimo;
+    BigDecimal precioCompra;
+    BigDecimal precioVenta;
+    BigDecimal iva;
+}
@@ -0,0 +1,79 @@
+package com.abrasa.Inventario.reportes;
+
+import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.JRField;
+import net.sf.jasperreports.engine.data.JRAbstractBeanDataSource;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.query.Query;
+
+import java.io.Closeable;
+
+/**
+ * Fuente de datos de Jasper que recorre la consulta con un cursor de solo avance
+ * en lugar de cargar todas las filas en una lista.
+ *
+ * Cada cierto número de filas se limpia el contexto de persistencia, así la
+ * memoria usada por el reporte no crece con el tamaño del historial.
+ */
+public class FuenteDatosDesplazable extends JRAbstractBeanDataSource implements Closeable {
+
+    // Filas que se piden al driver por viaje y que se mantienen en la sesión antes de limpiarla
+    private static final int TAMANO_LOTE = 500;
+
+    private final Session sesion;
+    private final ScrollableResults resultados;
+    private Object actual;
+    private int filasLeidas;
+    private boolean cerrada;
+
+    public FuenteDatosDesplazable(Session sesion, Query<?> consulta) {
+        super(true);
+        this.sesion = sesion;
+        this.resultados = consulta
+                .setReadOnly(true)
+                .setFetchSize(TAMANO_LOTE)
+                .scroll(ScrollMode.FORWARD_ONLY);
+    }
+
+    @Override
+    public boolean next() throws JRException {
+        if (cerrada) {
+            return false;
+        }
+
+        // Las filas anteriores ya fueron impresas: se sueltan antes de leer el siguiente lote
+        if (filasLeidas > 0 && filasLeidas % TAMANO_LOTE == 0) {
+            sesion.clear();
+        }
+
+        if (!resultados.next()) {
+            close();
+            return false;
+        }
+
+        actual = resultados.get(0);
+        filasLeidas++;
+        return true;
+    }
+
+    @Override
+    public Object getFieldValue(JRField campo) throws JRException {
+        return getFieldValue(actual, campo);
+    }
+
+    @Override
+    public void moveFirst() throws JRException {
+        throw new JRException("La fuente de datos desplazable solo se puede recorrer una vez");
+    }
+
+    @Override
+    public void close() {
+        if (!cerrada) {
+            cerrada = true;
+            actual = null;
+            resultados.close();
+        }
+    }
+}
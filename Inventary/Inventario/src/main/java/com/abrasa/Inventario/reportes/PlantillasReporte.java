@@ -0,0 +1,82 @@
+package com.abrasa.Inventario.reportes;
+
+import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.JasperCompileManager;
+import net.sf.jasperreports.engine.JasperReport;
+import net.sf.jasperreports.engine.util.JRLoader;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openxava.util.Resources;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Plantillas de Jasper compiladas, una sola vez por reporte.
+ *
+ * El build deja un .jasper junto a cada .jrxml (ver CompilarPlantillas en el
+ * pom.xml), así que normalmente solo se deserializa. Si no está, por ejemplo al
+ * ejecutar desde el IDE sin pasar por Maven, se compila el .jrxml la primera vez.
+ */
+public class PlantillasReporte {
+
+    private static final Log log = LogFactory.getLog(PlantillasReporte.class);
+
+    // Se cargan al arrancar para que la primera impresión no pague la carga
+    private static final String[] REPORTES = { "HistorialMovimientos.jrxml", "Kardex.jrxml", "ProductoDetalle.jrxml" };
+
+    private static final Map<String, JasperReport> plantillas = new ConcurrentHashMap<>();
+
+    private PlantillasReporte() {
+    }
+
+    public static JasperReport obtener(String jrxml) throws JRException {
+        JasperReport plantilla = plantillas.get(jrxml);
+        if (plantilla == null) {
+            // Si dos hilos llegan a la vez, los dos cargan y queda cualquiera de las dos: son iguales
+            plantilla = cargar(jrxml);
+            plantillas.put(jrxml, plantilla);
+        }
+        return plantilla;
+    }
+
+    public static void precargar() {
+        for (String jrxml : REPORTES) {
+            try {
+                obtener(jrxml);
+            }
+            catch (JRException ex) {
+                log.error("No se pudo cargar la plantilla " + jrxml, ex);
+            }
+        }
+    }
+
+    private static JasperReport cargar(String jrxml) throws JRException {
+        String jasper = jrxml.replaceFirst("\\.jrxml$", ".jasper");
+        try (InputStream compilada = buscar(jasper)) {
+            if (compilada != null) {
+                return (JasperReport) JRLoader.loadObject(compilada);
+            }
+        }
+        catch (IOException ex) {
+            throw new JRException(ex);
+        }
+
+        log.warn("No está " + jasper + " compilado en el build, se compila " + jrxml);
+        try (InputStream diseno = buscar(jrxml)) {
+            if (diseno == null) {
+                throw new JRException("No se encontró el diseño del reporte " + jrxml);
+            }
+            return JasperCompileManager.compileReport(diseno);
+        }
+        catch (IOException ex) {
+            throw new JRException(ex);
+        }
+    }
+
+    private static InputStream buscar(String archivo) {
+        return Resources.getAsStreamInPrefixes(archivo, "/reports/", "/informes/", "/");
+    }
+}
@@ -0,0 +1,73 @@
+package com.abrasa.Inventario.reportes;
+
+import lombok.Getter;
+
+import java.io.File;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Un reporte pedido a la ColaReportes: qué se imprime, en qué estado está
+ * y dónde quedó el PDF una vez generado.
+ */
+@Getter
+public class TrabajoReporte {
+
+    public enum Estado { EN_COLA, GENERANDO, TERMINADO, FALLIDO }
+
+    private final String id = UUID.randomUUID().toString();
+    private final String jrxml;
+    private final Map<String, Object> parametros;
+    private final String nombreArchivo;
+    // Dos pedidos con la misma firma producen el mismo PDF
+    private final String firma;
+    // VersionDatos con la que se pidió: si cambia, el PDF ya no refleja los datos
+    private final long versionDatos;
+    private final Instant creado = Instant.now();
+
+    // Los escribe el hilo de la cola y los leen las peticiones que consultan el trabajo
+    private volatile Estado estado = Estado.EN_COLA;
+    private volatile File archivo;
+    private volatile String error;
+    private volatile Instant terminado;
+    private volatile Instant ultimoUso;
+
+    TrabajoReporte(String jrxml, Map<String, Object> parametros, String nombreArchivo, String firma, long versionDatos) {
+        this.jrxml = jrxml;
+        this.parametros = Collections.unmodifiableMap(parametros);
+        this.nombreArchivo = nombreArchivo;
+        this.firma = firma;
+        this.versionDatos = versionDatos;
+    }
+
+    public boolean isPendiente() {
+        return estado == Estado.EN_COLA || estado == Estado.GENERANDO;
+    }
+
+    void generando() {
+        estado = Estado.GENERANDO;
+    }
+
+    void terminar(File archivo) {
+        this.archivo = archivo;
+        this.terminado = Instant.now();
+        this.ultimoUso = terminado;
+        this.estado = Estado.TERMINADO;
+    }
+
+    /**
+     * Se vuelve a entregar el PDF ya generado; el tiempo de vida cuenta desde aquí.
+     */
+    void usar() {
+        ultimoUso = Instant.now();
+    }
+
+    void fallar(String error) {
+        this.error = error;
+        this.terminado = Instant.now();
+        this.ultimoUso = terminado;
+        this.estado = Estado.FALLIDO;
+    }
+}
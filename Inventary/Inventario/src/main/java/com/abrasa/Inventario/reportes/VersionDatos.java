@@ -0,0 +1,51 @@
+package com.abrasa.Inventario.reportes;
+
+import org.hibernate.engine.spi.SessionImplementor;
+import org.openxava.jpa.XPersistence;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Número que cambia cada vez que se confirma un cambio en productos o movimientos.
+ *
+ * Forma parte de la clave de los reportes ya generados en la ColaReportes: mientras
+ * no cambie, el mismo reporte con los mismos parámetros se sirve desde el PDF en
+ * disco sin volver a consultar la base ni a llenar el reporte.
+ */
+public class VersionDatos {
+
+    private static final AtomicLong version = new AtomicLong();
+
+    private VersionDatos() {
+    }
+
+    public static long actual() {
+        return version.get();
+    }
+
+    /**
+     * Para cambios que ya están confirmados (por ejemplo, tras el commit de un lote importado).
+     */
+    public static void incrementar() {
+        version.incrementAndGet();
+    }
+
+    /**
+     * Incrementa la versión cuando se confirme la transacción en curso.
+     *
+     * Si se incrementara antes, un reporte que se llene entre el cambio y el commit
+     * leería los datos viejos y quedaría guardado con la versión nueva.
+     */
+    public static void incrementarAlConfirmar() {
+        SessionImplementor sesion = XPersistence.getManager().unwrap(SessionImplementor.class);
+        if (!sesion.isTransactionInProgress()) {
+            incrementar();
+            return;
+        }
+        sesion.getActionQueue().registerProcess((confirmada, s) -> {
+            if (confirmada) {
+                incrementar();
+            }
+        });
+    }
+}
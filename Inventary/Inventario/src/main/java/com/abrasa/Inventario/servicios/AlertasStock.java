@@ -0,0 +1,52 @@
+package com.abrasa.Inventario.servicios;
+
+import com.abrasa.Inventario.modelo.Producto;
+import org.openxava.jpa.XPersistence;
+
+import java.util.List;
+
+/**
+ * Consultas sobre los productos que están por debajo de su stock mínimo.
+ *
+ * Leen la columna indexada bajoMinimo en lugar de comparar stockActual con
+ * stockMinimo fila por fila, así el costo depende de cuántos productos hay que
+ * reponer y no del tamaño del catálogo (índice ix_producto_bajo_minimo). Son la
+ * API del tablero de compras; en pantalla, los mismos productos se ven en el
+ * módulo ProductosBajoMinimo (tab BajoMinimo de Producto).
+ */
+public class AlertasStock {
+
+    private AlertasStock() {
+    }
+
+    /**
+     * Productos activos a reponer, ordenados por proveedor para armar los pedidos.
+     */
+    public static List<Producto> productosBajoMinimo() {
+        return XPersistence.getManager()
+                .createQuery("select p from Producto p join fetch p.proveedor pr " +
+                        "where p.bajoMinimo = true and p.activo = true " +
+                        "order by pr.nombreComercial, p.nombre", Producto.class)
+                .getResultList();
+    }
+
+    public static long contarBajoMinimo() {
+        return XPersistence.getManager()
+                .createQuery("select count(p) from Producto p where p.bajoMinimo = true and p.activo = true", Long.class)
+                .getSingleResult();
+    }
+
+    /**
+     * Recalcula la marca de todo el catálogo; solo hace falta para datos cargados
+     * sin pasar por LibroStock (por ejemplo, las filas que ya existían al agregar la columna).
+     *
+     * @return cantidad de productos cuya marca cambió.
+     */
+    public static int recalcularTodos() {
+        return XPersistence.getManager()
+                .createQuery("update Producto p " +
+                        "set p.bajoMinimo = case when p.stockActual < p.stockMinimo then true else false end " +
+                        "where p.bajoMinimo <> case when p.stockActual < p.stockMinimo then true else false end")
+                .executeUpdate();
+    }
+}
@@ -0,0 +1,183 @@
+package com.abrasa.Inventario.servicios;
+
+import com.abrasa.Inventario.modelo.Categoria;
+import com.abrasa.Inventario.modelo.Producto;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hibernate.Session;
+import org.openxava.jpa.XPersistence;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Búsqueda de productos por palabras ("urea 46", "semilla maíz híbrido") en
+ * código, nombre, tipo, descripción y categoría.
+ *
+ * Producto.textoBusqueda guarda esos cinco campos en minúsculas, sin tildes y sin
+ * signos; lo mantiene IndiceBusquedaListener al grabar productos y categorías. En
+ * PostgreSQL se busca con el índice GIN sobre to_tsvector('simple', textoBusqueda)
+ * (migración V2), cada palabra como prefijo y ordenado por ts_rank; en HSQLDB
+ * (desarrollo) se usa un like por palabra, ordenado por nombre.
+ */
+public class BusquedaProductos {
+
+    private static final Log log = LogFactory.getLog(BusquedaProductos.class);
+
+    public static final int MAXIMO_RESULTADOS = 50;
+    private static final int PRODUCTOS_POR_LOTE = 500;
+
+    private static final Pattern MARCAS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARADORES = Pattern.compile("[^\\p{Alnum}]+");
+
+    private static final String DOCUMENTO = "to_tsvector('simple', textoBusqueda)";
+
+    private BusquedaProductos() {
+    }
+
+    /**
+     * Códigos de los productos activos que contienen todas las palabras buscadas,
+     * los más relevantes primero; como mucho MAXIMO_RESULTADOS.
+     */
+    public static List<String> buscar(String texto) {
+        String normalizado = normalizar(texto);
+        if (normalizado.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String[] palabras = normalizado.split(" ");
+
+        if (esPostgreSQL()) {
+            // Las palabras ya no tienen signos, así que no alteran la sintaxis de to_tsquery
+            String consulta = String.join(":* & ", palabras) + ":*";
+            List<?> codigos = XPersistence.getManager()
+                    .createNativeQuery("select codigo from producto " +
+                            "where activo = true and " + DOCUMENTO + " @@ to_tsquery('simple', :consulta) " +
+                            "order by ts_rank(" + DOCUMENTO + ", to_tsquery('simple', :consulta)) desc, nombre")
+                    .setParameter("consulta", consulta)
+                    .setMaxResults(MAXIMO_RESULTADOS)
+                    .getResultList();
+            List<String> resultado = new ArrayList<>();
+            for (Object codigo : codigos) {
+                resultado.add((String) codigo);
+            }
+            return resultado;
+        }
+
+        StringBuilder jpql = new StringBuilder("select p.codigo from Producto p where p.activo = true");
+        for (int i = 0; i < palabras.length; i++) {
+            jpql.append(" and p.textoBusqueda like :palabra").append(i);
+        }
+        jpql.append(" order by p.nombre");
+        TypedQuery<String> consulta = XPersistence.getManager().createQuery(jpql.toString(), String.class);
+        for (int i = 0; i < palabras.length; i++) {
+            consulta.setParameter("palabra" + i, "%" + palabras[i] + "%");
+        }
+        return consulta.setMaxResults(MAXIMO_RESULTADOS).getResultList();
+    }
+
+    public static String textoDe(Producto producto) {
+        return texto(producto.getCodigo(), producto.getNombre(), producto.getTipo(), producto.getDescripcion(),
+                producto.getCategoria() != null ? producto.getCategoria().getNombre() : null);
+    }
+
+    /**
+     * Rehace el texto de los productos de la categoría, que incluye su nombre.
+     * Se llama desde el flush que graba la categoría, así que va por JDBC: una
+     * consulta JPA volvería a disparar el flush.
+     */
+    public static void actualizarCategoria(Categoria categoria) {
+        XPersistence.getManager().unwrap(Session.class).doWork(conexion -> {
+            try (PreparedStatement lectura = conexion.prepareStatement(
+                    "select codigo, nombre, tipo, descripcion from producto where categoria_id = ?");
+                 PreparedStatement escritura = conexion.prepareStatement(
+                         "update producto set textoBusqueda = ? where codigo = ?")) {
+                lectura.setLong(1, categoria.getId());
+                try (ResultSet filas = lectura.executeQuery()) {
+                    while (filas.next()) {
+                        escritura.setString(1, texto(filas.getString(1), filas.getString(2), filas.getString(3),
+                                filas.getString(4), categoria.getNombre()));
+                        escritura.setString(2, filas.getString(1));
+                        escritura.addBatch();
+                    }
+                }
+                escritura.executeBatch();
+            }
+        });
+    }
+
+    /**
+     * Completa el texto de los productos que no lo tienen (los anteriores a la
+     * búsqueda o cargados directamente en la base). Se llama al arrancar la aplicación.
+     */
+    public static void preparar() {
+        try {
+            int completados = completarTextos();
+            if (completados > 0) {
+                log.info("Texto de búsqueda completado en " + completados + " productos");
+            }
+        }
+        catch (RuntimeException ex) {
+            XPersistence.rollback();
+            log.warn("No se pudo preparar la búsqueda de productos: " + ex.getMessage(), ex);
+        }
+        finally {
+            XPersistence.reset();
+        }
+    }
+
+    private static int completarTextos() {
+        int completados = 0;
+        List<Object[]> filas;
+        do {
+            // commit() cierra el EntityManager: cada lote usa uno nuevo
+            EntityManager manager = XPersistence.getManager();
+            filas = manager.createQuery("select p.codigo, p.nombre, p.tipo, p.descripcion, c.nombre " +
+                            "from Producto p join p.categoria c where p.textoBusqueda is null", Object[].class)
+                    .setMaxResults(PRODUCTOS_POR_LOTE)
+                    .getResultList();
+            for (Object[] fila : filas) {
+                manager.createQuery("update Producto p set p.textoBusqueda = :texto where p.codigo = :codigo")
+                        .setParameter("texto", texto((String) fila[0], (String) fila[1], (String) fila[2],
+                                (String) fila[3], (String) fila[4]))
+                        .setParameter("codigo", fila[0])
+                        .executeUpdate();
+            }
+            XPersistence.commit();
+            completados += filas.size();
+        } while (filas.size() == PRODUCTOS_POR_LOTE);
+        return completados;
+    }
+
+    private static boolean esPostgreSQL() {
+        return XPersistence.getManager().unwrap(Session.class).doReturningWork(
+                conexion -> conexion.getMetaData().getDatabaseProductName().toLowerCase().contains("postgresql"));
+    }
+
+    private static String texto(String... campos) {
+        StringBuilder texto = new StringBuilder();
+        for (String campo : campos) {
+            if (campo != null) {
+                texto.append(campo).append(' ');
+            }
+        }
+        return normalizar(texto.toString());
+    }
+
+    /**
+     * Minúsculas, sin tildes ni diéresis y con una sola separación entre palabras:
+     * "Semilla Maíz-Híbrido" queda "semilla maiz hibrido".
+     */
+    static String normalizar(String texto) {
+        if (texto == null) {
+            return "";
+        }
+        String sinMarcas = MARCAS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("");
+        return SEPARADORES.matcher(sinMarcas.toLowerCase()).replaceAll(" ").trim();
+    }
+}
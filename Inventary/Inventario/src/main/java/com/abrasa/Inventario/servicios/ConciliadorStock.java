@@ -0,0 +1,243 @@
+package com.abrasa.Inventario.servicios;
+
+import com.abrasa.Inventario.modelo.TipoMovimiento;
+import com.abrasa.Inventario.reportes.VersionDatos;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openxava.jpa.XPersistence;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Concilia el stockActual de cada producto con su libro de movimientos
+ * (ENTRADA menos SALIDA).
+ *
+ * LibroStock mantiene los dos en sintonía, pero no así los datos cargados
+ * directamente en la base o los que existían antes de esas sentencias. El
+ * catálogo se reparte en rangos de códigos entre los hilos de un ForkJoinPool:
+ * cada rango se compara con una sola consulta agrupada y, si se pide, se corrige
+ * en lotes con su propio EntityManager. Pensado para correr de noche.
+ *
+ * La corrección no deja un stock por debajo de lo reservado (ReservasStock): esos
+ * productos se informan sin tocar, para revisar sus reservas a mano.
+ */
+public class ConciliadorStock {
+
+    private static final Log log = LogFactory.getLog(ConciliadorStock.class);
+
+    private static final int PRODUCTOS_POR_RANGO = 1000;
+    private static final int CORRECCIONES_POR_LOTE = 500;
+    // Cada hilo ocupa una conexión del pool del context.xml mientras dura su rango
+    private static final int HILOS = Math.min(4, Runtime.getRuntime().availableProcessors());
+
+    private ConciliadorStock() {
+    }
+
+    /**
+     * Solo informa las diferencias, sin modificar nada.
+     */
+    public static Conciliacion revisar() {
+        return conciliar(false);
+    }
+
+    /**
+     * Lleva el stockActual de cada producto descuadrado a la suma de sus movimientos,
+     * y su valorInventario a ese stock al costo promedio, salvo que la suma no
+     * alcance para su stock reservado.
+     */
+    public static Conciliacion corregir() {
+        return conciliar(true);
+    }
+
+    private static Conciliacion conciliar(boolean corregir) {
+        long inicio = System.currentTimeMillis();
+        List<String> codigos = XPersistence.getManager()
+                .createQuery("select p.codigo from Producto p order by p.codigo", String.class)
+                .getResultList();
+        XPersistence.commit();
+
+        List<Discrepancia> discrepancias = codigos.isEmpty() ? Collections.emptyList() : procesar(
+                new ConciliarRango(codigos, corregir,
+                        XPersistence.getPersistenceUnit(), XPersistence.getPersistenceUnitProperties()));
+
+        Conciliacion conciliacion = new Conciliacion(codigos.size(), discrepancias);
+        if (conciliacion.getCorregidas() > 0) {
+            VersionDatos.incrementar();
+        }
+        for (Discrepancia discrepancia : discrepancias) {
+            log.warn("Stock descuadrado en " + discrepancia.getCodigo() + ": stockActual " + discrepancia.getStockActual()
+                    + ", movimientos " + discrepancia.getStockMovimientos()
+                    + (discrepancia.isCorregida() ? " (corregido)" : "")
+                    + (discrepancia.isReservaExcedida() ? " (sin corregir: reservado " + discrepancia.getStockReservado() + ")" : ""));
+        }
+        log.info("Conciliación de stock: " + codigos.size() + " productos, " + discrepancias.size() + " descuadrados, "
+                + conciliacion.getCorregidas() + " corregidos en " + (System.currentTimeMillis() - inicio) + " ms");
+        return conciliacion;
+    }
+
+    private static List<Discrepancia> procesar(ConciliarRango tarea) {
+        ForkJoinPool pool = new ForkJoinPool(HILOS);
+        try {
+            return pool.invoke(tarea);
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Parte la lista de códigos hasta PRODUCTOS_POR_RANGO y concilia cada rango
+     * entre su primer y último código.
+     */
+    private static class ConciliarRango extends RecursiveTask<List<Discrepancia>> {
+
+        private final List<String> codigos;
+        private final boolean corregir;
+        // Los hilos del pool usan la misma unidad de persistencia que quien pidió la conciliación
+        private final String unidad;
+        private final Map<?, ?> propiedades;
+
+        ConciliarRango(List<String> codigos, boolean corregir, String unidad, Map<?, ?> propiedades) {
+            this.codigos = codigos;
+            this.corregir = corregir;
+            this.unidad = unidad;
+            this.propiedades = propiedades;
+        }
+
+        @Override
+        protected List<Discrepancia> compute() {
+            if (codigos.size() > PRODUCTOS_POR_RANGO) {
+                int mitad = codigos.size() / 2;
+                ConciliarRango primera = new ConciliarRango(codigos.subList(0, mitad), corregir, unidad, propiedades);
+                ConciliarRango segunda = new ConciliarRango(codigos.subList(mitad, codigos.size()), corregir, unidad, propiedades);
+                primera.fork();
+                List<Discrepancia> discrepancias = new ArrayList<>(segunda.compute());
+                discrepancias.addAll(primera.join());
+                return discrepancias;
+            }
+
+            XPersistence.setPersistenceUnit(unidad);
+            // Copia: setPersistenceUnitProperties anota la unidad en el mapa que recibe
+            XPersistence.setPersistenceUnitProperties(new HashMap<>(propiedades));
+            try {
+                List<Discrepancia> discrepancias = comparar(codigos.get(0), codigos.get(codigos.size() - 1));
+                if (corregir) {
+                    aplicar(discrepancias);
+                }
+                XPersistence.commit();
+                return discrepancias;
+            }
+            catch (RuntimeException ex) {
+                XPersistence.rollback();
+                throw ex;
+            }
+            finally {
+                // El hilo vuelve al pool: no debe quedarle un EntityManager abierto
+                XPersistence.reset();
+            }
+        }
+    }
+
+    /**
+     * Stock y suma de movimientos de cada producto del rango en una sola sentencia,
+     * así los dos valores salen de la misma foto de la base.
+     */
+    private static List<Discrepancia> comparar(String desde, String hasta) {
+        List<Object[]> filas = XPersistence.getManager()
+                .createQuery(
+                        "select p.codigo, p.stockActual, p.stockReservado, " +
+                                "coalesce(sum(case when m.tipoMovimiento = :entrada then m.cantidad else -m.cantidad end), 0) " +
+                                "from Producto p left join Movimiento m on m.producto = p " +
+                                "where p.codigo >= :desde and p.codigo <= :hasta " +
+                                "group by p.codigo, p.stockActual, p.stockReservado",
+                        Object[].class)
+                .setParameter("entrada", TipoMovimiento.ENTRADA)
+                .setParameter("desde", desde)
+                .setParameter("hasta", hasta)
+                .getResultList();
+
+        List<Discrepancia> discrepancias = new ArrayList<>();
+        for (Object[] fila : filas) {
+            BigDecimal stockActual = (BigDecimal) fila[1];
+            BigDecimal stockMovimientos = (BigDecimal) fila[3];
+            if (stockActual.compareTo(stockMovimientos) != 0) {
+                discrepancias.add(new Discrepancia((String) fila[0], stockActual, (BigDecimal) fila[2], stockMovimientos));
+            }
+        }
+        return discrepancias;
+    }
+
+    /**
+     * Solo corrige si el stock sigue siendo el que se comparó: si entretanto entró
+     * un movimiento, LibroStock ya lo movió y el producto queda para la próxima pasada.
+     * Lo mismo si mientras tanto se reservó más de lo que dejaría la corrección.
+     */
+    private static void aplicar(List<Discrepancia> discrepancias) {
+        int enLote = 0;
+        for (Discrepancia discrepancia : discrepancias) {
+            if (discrepancia.getStockMovimientos().compareTo(discrepancia.getStockReservado()) < 0) {
+                discrepancia.reservaExcedida = true;
+                continue;
+            }
+            int filas = XPersistence.getManager()
+                    .createQuery("update Producto p set p.stockActual = :stock, " +
+                            // El costo promedio sigue valiendo; el valor acompaña al stock corregido
+                            "p.valorInventario = :stock * coalesce(p.costoPromedio, p.precioCompra), " +
+                            "p.bajoMinimo = case when :stock < p.stockMinimo then true else false end " +
+                            "where p.codigo = :codigo and p.stockActual = :anterior and p.stockReservado <= :stock")
+                    .setParameter("stock", discrepancia.getStockMovimientos())
+                    .setParameter("codigo", discrepancia.getCodigo())
+                    .setParameter("anterior", discrepancia.getStockActual())
+                    .executeUpdate();
+            discrepancia.corregida = filas > 0;
+            if (++enLote == CORRECCIONES_POR_LOTE) {
+                XPersistence.commit();
+                enLote = 0;
+            }
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Conciliacion {
+
+        private final int productos;
+        private final List<Discrepancia> discrepancias;
+
+        public long getCorregidas() {
+            return discrepancias.stream().filter(Discrepancia::isCorregida).count();
+        }
+
+        public long getReservasExcedidas() {
+            return discrepancias.stream().filter(Discrepancia::isReservaExcedida).count();
+        }
+    }
+
+    @Getter
+    public static class Discrepancia {
+
+        private final String codigo;
+        private final BigDecimal stockActual;
+        private final BigDecimal stockReservado;
+        private final BigDecimal stockMovimientos;
+        private boolean corregida;
+        // Los movimientos no alcanzan para lo reservado: no se corrige
+        private boolean reservaExcedida;
+
+        Discrepancia(String codigo, BigDecimal stockActual, BigDecimal stockReservado, BigDecimal stockMovimientos) {
+            this.codigo = codigo;
+            this.stockActual = stockActual;
+            this.stockReservado = stockReservado;
+            this.stockMovimientos = stockMovimientos;
+        }
+    }
+}
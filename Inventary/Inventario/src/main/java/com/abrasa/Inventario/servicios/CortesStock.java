@@ -0,0 +1,193 @@
+package com.abrasa.Inventario.servicios;
+
+import com.abrasa.Inventario.modelo.CorteStock;
+import com.abrasa.Inventario.modelo.Producto;
+import com.abrasa.Inventario.modelo.TipoMovimiento;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openxava.jpa.XPersistence;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cortes de stock de fin de mes: el stock de cada producto a una fecha se
+ * calcula desde el corte anterior más los movimientos posteriores, sin recorrer
+ * toda la historia.
+ *
+ * Los cortes se calculan con el libro de movimientos, no con stockActual. Un
+ * movimiento con fecha igual o anterior al último corte (cargado con atraso o
+ * importado) ajusta los cortes ya generados desde su fecha en adelante.
+ *
+ * Generar un corte y registrar un movimiento se excluyen con la fila del
+ * producto: el movimiento la bloquea al actualizar el stock (LibroStock), antes
+ * de ajustar, y el corte bloquea todas antes de leer los movimientos. Así un
+ * movimiento o entra en el corte o ya lo ve generado y lo ajusta.
+ */
+public class CortesStock {
+
+    private static final Log log = LogFactory.getLog(CortesStock.class);
+
+    private static final int CORTES_POR_LOTE = 500;
+    // Fecha anterior a cualquier movimiento: "sin corte, desde el principio"
+    private static final LocalDate INICIO = LocalDate.of(1900, 1, 1);
+
+    private CortesStock() {
+    }
+
+    /**
+     * Genera los cortes de fin de mes que falten hasta el último mes cerrado antes de hoy.
+     *
+     * @return cantidad de cortes (fechas) generados.
+     */
+    public static int generarPendientes(LocalDate hoy) {
+        LocalDate ultimo = ultimoCorte();
+        LocalDate desde = ultimo != null ? ultimo.plusDays(1) : primerMovimiento();
+        if (desde == null) {
+            return 0;
+        }
+        int generados = 0;
+        for (LocalDate fecha = finDeMes(desde); fecha.isBefore(hoy); fecha = finDeMes(fecha.plusDays(1))) {
+            if (generar(fecha)) {
+                generados++;
+            }
+        }
+        return generados;
+    }
+
+    /**
+     * Stock de un producto al final del día indicado.
+     */
+    public static BigDecimal stockAl(String codigoProducto, LocalDate fecha) {
+        List<CorteStock> cortes = XPersistence.getManager()
+                .createQuery("select c from CorteStock c " +
+                        "where c.producto.codigo = :codigo and c.fecha <= :fecha order by c.fecha desc", CorteStock.class)
+                .setParameter("codigo", codigoProducto)
+                .setParameter("fecha", fecha)
+                .setMaxResults(1)
+                .getResultList();
+        CorteStock corte = cortes.isEmpty() ? null : cortes.get(0);
+
+        BigDecimal movimientos = XPersistence.getManager()
+                .createQuery("select coalesce(sum(case when m.tipoMovimiento = :entrada then m.cantidad else -m.cantidad end), 0) " +
+                        "from Movimiento m where m.producto.codigo = :codigo and m.fecha > :desde and m.fecha <= :fecha", BigDecimal.class)
+                .setParameter("entrada", TipoMovimiento.ENTRADA)
+                .setParameter("codigo", codigoProducto)
+                .setParameter("desde", corte != null ? corte.getFecha() : INICIO)
+                .setParameter("fecha", fecha)
+                .getSingleResult();
+
+        return corte != null ? corte.getCantidad().add(movimientos) : movimientos;
+    }
+
+    /**
+     * Fecha del último corte anterior al día indicado, o una fecha anterior a todos
+     * los movimientos si no hay ninguno: desde ahí hay que sumar para llegar a ese día.
+     */
+    public static LocalDate corteAnterior(LocalDate fecha) {
+        LocalDate corte = XPersistence.getManager()
+                .createQuery("select max(c.fecha) from CorteStock c where c.fecha < :fecha", LocalDate.class)
+                .setParameter("fecha", fecha)
+                .getSingleResult();
+        return corte != null ? corte : INICIO;
+    }
+
+    /**
+     * Lleva un movimiento con fecha ya cerrada a los cortes desde esa fecha; si es
+     * posterior al último corte no hace nada. La transacción ya debe tener
+     * bloqueada la fila del producto (ver la nota de la clase).
+     */
+    public static void ajustar(String codigoProducto, TipoMovimiento tipoMovimiento, BigDecimal cantidad, LocalDate fecha) {
+        if (fecha == null) {
+            return;
+        }
+        LocalDate ultimo = ultimoCorte();
+        if (ultimo == null || fecha.isAfter(ultimo)) {
+            return;
+        }
+        XPersistence.getManager()
+                .createQuery("update CorteStock c set c.cantidad = c.cantidad + :cantidad " +
+                        "where c.producto.codigo = :codigo and c.fecha >= :fecha")
+                .setParameter("cantidad", tipoMovimiento == TipoMovimiento.SALIDA ? cantidad.negate() : cantidad)
+                .setParameter("codigo", codigoProducto)
+                .setParameter("fecha", fecha)
+                .executeUpdate();
+    }
+
+    /**
+     * Un corte por producto: el del corte anterior más los movimientos del período.
+     *
+     * @return false si otro proceso ya generó ese corte mientras se esperaba el bloqueo.
+     */
+    private static boolean generar(LocalDate fecha) {
+        long inicio = System.currentTimeMillis();
+        EntityManager manager = XPersistence.getManager();
+        // En orden de código, como la importación, para no bloquearse entre los dos
+        List<String> codigos = manager.createQuery("select p.codigo from Producto p order by p.codigo", String.class)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultList();
+        LocalDate anterior = ultimoCorte();
+        if (anterior != null && !anterior.isBefore(fecha)) {
+            XPersistence.commit();
+            return false;
+        }
+
+        Map<String, BigDecimal> stock = new HashMap<>();
+        if (anterior != null) {
+            for (Object[] fila : manager.createQuery(
+                            "select c.producto.codigo, c.cantidad from CorteStock c where c.fecha = :anterior", Object[].class)
+                    .setParameter("anterior", anterior)
+                    .getResultList()) {
+                stock.put((String) fila[0], (BigDecimal) fila[1]);
+            }
+        }
+        for (Object[] fila : manager.createQuery(
+                        "select m.producto.codigo, sum(case when m.tipoMovimiento = :entrada then m.cantidad else -m.cantidad end) " +
+                                "from Movimiento m where m.fecha > :desde and m.fecha <= :fecha " +
+                                "group by m.producto.codigo", Object[].class)
+                .setParameter("entrada", TipoMovimiento.ENTRADA)
+                .setParameter("desde", anterior != null ? anterior : INICIO)
+                .setParameter("fecha", fecha)
+                .getResultList()) {
+            stock.merge((String) fila[0], (BigDecimal) fila[1], BigDecimal::add);
+        }
+
+        int enLote = 0;
+        for (String codigo : codigos) {
+            manager.persist(new CorteStock(manager.getReference(Producto.class, codigo), fecha,
+                    stock.getOrDefault(codigo, BigDecimal.ZERO)));
+            if (++enLote == CORTES_POR_LOTE) {
+                manager.flush();
+                manager.clear();
+                enLote = 0;
+            }
+        }
+        XPersistence.commit();
+        log.info("Corte de stock al " + fecha + ": " + codigos.size() + " productos en "
+                + (System.currentTimeMillis() - inicio) + " ms");
+        return true;
+    }
+
+    // Sin caché: un corte generado en otra transacción (u otro nodo) debe verse en el siguiente movimiento
+    private static LocalDate ultimoCorte() {
+        return XPersistence.getManager()
+                .createQuery("select max(c.fecha) from CorteStock c", LocalDate.class)
+                .getSingleResult();
+    }
+
+    private static LocalDate primerMovimiento() {
+        return XPersistence.getManager()
+                .createQuery("select min(m.fecha) from Movimiento m", LocalDate.class)
+                .getSingleResult();
+    }
+
+    private static LocalDate finDeMes(LocalDate fecha) {
+        return fecha.with(TemporalAdjusters.lastDayOfMonth());
+    }
+}
@@ -0,0 +1,647 @@
+package com.abrasa.Inventario.servicios;
+
+import com.abrasa.Inventario.modelo.Proveedor;
+import com.abrasa.Inventario.modelo.TipoMovimiento;
+import com.abrasa.Inventario.reportes.VersionDatos;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.poifs.filesystem.FileMagic;
+import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.hibernate.Session;
+import org.openxava.jpa.XPersistence;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.*;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.function.ObjIntConsumer;
+import java.util.regex.Pattern;
+
+/**
+ * Importa movimientos desde una hoja de cálculo (CSV o Excel) por lotes.
+ *
+ * Cada lote suma las cantidades por producto y aplica una sola actualización de
+ * stock para sus entradas y otra para sus salidas; después inserta las filas con
+ * un batch de JDBC. Las filas con errores se informan y se saltan sin detener el
+ * resto del archivo.
+ *
+ * Dentro de un lote las entradas de un producto se valoran antes que sus salidas:
+ * todas las salidas del lote salen al costo promedio que dejan esas entradas.
+ *
+ * Columnas esperadas: fecha; producto; tipo (ENTRADA/SALIDA); cantidad; proveedor; observaciones;
+ * costo unitario (opcional, solo para ENTRADA; si falta se usa el precio de compra del producto).
+ *
+ * Los números de un CSV llevan el separador decimal que se indique y ningún
+ * separador de miles: "1.000" o "1,000" pueden ser mil o uno según quien los
+ * escriba, así que se rechazan en lugar de adivinar. De un Excel se toma el valor
+ * numérico de la celda, no el texto con su formato.
+ */
+public class ImportadorMovimientos {
+
+    private static final Log log = LogFactory.getLog(ImportadorMovimientos.class);
+
+    private static final int TAMANO_LOTE = 500;
+
+    private static final String INSERTAR_MOVIMIENTO =
+            "insert into movimiento (fecha, tipoMovimiento, cantidad, costoUnitario, observaciones, producto_codigo, proveedor_codigo) " +
+                    "values (?, ?, ?, ?, ?, ?, ?)";
+
+    private static final DateTimeFormatter FECHA_DIA_MES_ANIO = DateTimeFormatter.ofPattern("d/M/yyyy");
+
+    // Se consultan una sola vez por importación
+    private final Map<String, String> nombresProducto = new HashMap<>();
+    private final Map<String, BigDecimal> preciosCompra = new HashMap<>();
+    private final Map<String, Boolean> proveedoresExistentes = new HashMap<>();
+
+    private final List<String> errores = new ArrayList<>();
+    private int importados;
+
+    private final List<FilaMovimiento> lote = new ArrayList<>();
+    private Pattern numero;
+    private char separadorDecimal;
+
+    /**
+     * Importa las filas de un CSV (ver leerCsv), cuyos números usan separadorDecimal.
+     */
+    public void importar(Iterator<String[]> filas, char separadorDecimal) {
+        usarSeparadorDecimal(separadorDecimal);
+        int numeroFila = 0;
+        try {
+            while (filas.hasNext()) {
+                agregar(filas.next(), ++numeroFila);
+            }
+        }
+        catch (IllegalArgumentException ex) {
+            // Un campo entre comillas sin cerrar: el resto del archivo no se puede separar en columnas
+            errores.add("Fila " + (numeroFila + 1) + ": " + ex.getMessage() + "; no se importó el resto del archivo");
+        }
+        terminar();
+    }
+
+    /**
+     * Importa la primera hoja de un libro .xlsx o .xls. Los .xlsx se recorren con
+     * el lector por eventos de POI, sin cargar el libro entero; los .xls (como mucho
+     * 65.536 filas) se abren completos.
+     */
+    public void importarExcel(byte[] contenido) throws Exception {
+        usarSeparadorDecimal('.');
+        if (FileMagic.valueOf(new ByteArrayInputStream(contenido)) == FileMagic.OOXML) {
+            leerXlsx(contenido, this::agregar);
+        }
+        else {
+            leerXls(contenido, this::agregar);
+        }
+        terminar();
+    }
+
+    public List<String> getErrores() {
+        return errores;
+    }
+
+    public int getImportados() {
+        return importados;
+    }
+
+    void usarSeparadorDecimal(char separador) {
+        separadorDecimal = separador;
+        numero = Pattern.compile("-?\\d+(" + Pattern.quote(String.valueOf(separador)) + "\\d+)?");
+    }
+
+    private void agregar(String[] columnas, int numeroFila) {
+        if (esVacia(columnas) || (numeroFila == 1 && esEncabezado(columnas))) {
+            return;
+        }
+
+        FilaMovimiento fila = validar(numeroFila, columnas);
+        if (fila != null) {
+            lote.add(fila);
+        }
+        if (lote.size() == TAMANO_LOTE) {
+            grabarLote(lote);
+            lote.clear();
+        }
+    }
+
+    private void terminar() {
+        if (!lote.isEmpty()) {
+            grabarLote(lote);
+            lote.clear();
+        }
+    }
+
+    // ================= Validación de filas =================
+
+    private FilaMovimiento validar(int numeroFila, String[] columnas) {
+        try {
+            FilaMovimiento fila = new FilaMovimiento();
+            fila.numero = numeroFila;
+            fila.fecha = leerFecha(columna(columnas, 0));
+            fila.codigoProducto = columna(columnas, 1);
+            fila.tipo = leerTipo(columna(columnas, 2));
+            fila.cantidad = leerCantidad(columna(columnas, 3));
+            fila.codigoProveedor = columna(columnas, 4);
+            fila.observaciones = columna(columnas, 5);
+            fila.costoUnitario = leerCostoUnitario(columna(columnas, 6));
+
+            if (fila.codigoProducto == null) {
+                throw new IllegalArgumentException("falta el código del producto");
+            }
+            if (getNombreProducto(fila.codigoProducto) == null) {
+                throw new IllegalArgumentException("no existe el producto " + fila.codigoProducto);
+            }
+            if (fila.tipo == TipoMovimiento.ENTRADA && fila.costoUnitario == null) {
+                fila.costoUnitario = getPrecioCompra(fila.codigoProducto);
+            }
+            if (fila.codigoProveedor != null && !existeProveedor(fila.codigoProveedor)) {
+                throw new IllegalArgumentException("no existe el proveedor " + fila.codigoProveedor);
+            }
+            if (fila.observaciones != null && fila.observaciones.length() > 200) {
+                fila.observaciones = fila.observaciones.substring(0, 200);
+            }
+            return fila;
+        }
+        catch (IllegalArgumentException ex) {
+            errores.add("Fila " + numeroFila + ": " + ex.getMessage());
+            return null;
+        }
+    }
+
+    private static LocalDate leerFecha(String texto) {
+        if (texto == null) {
+            throw new IllegalArgumentException("falta la fecha");
+        }
+        try {
+            return texto.contains("/") ? LocalDate.parse(texto, FECHA_DIA_MES_ANIO) : LocalDate.parse(texto);
+        }
+        catch (DateTimeParseException ex) {
+            throw new IllegalArgumentException("fecha no válida: " + texto);
+        }
+    }
+
+    private static TipoMovimiento leerTipo(String texto) {
+        if (texto == null) {
+            throw new IllegalArgumentException("falta el tipo de movimiento");
+        }
+        try {
+            return TipoMovimiento.valueOf(texto.toUpperCase());
+        }
+        catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("tipo de movimiento no válido: " + texto);
+        }
+    }
+
+    BigDecimal leerCantidad(String texto) {
+        if (texto == null) {
+            throw new IllegalArgumentException("falta la cantidad");
+        }
+        BigDecimal cantidad = leerNumero(texto, "cantidad no válida");
+        if (cantidad.signum() <= 0) {
+            throw new IllegalArgumentException("la cantidad debe ser mayor que cero");
+        }
+        if (cantidad.stripTrailingZeros().scale() > 2) {
+            throw new IllegalArgumentException("la cantidad admite como máximo 2 decimales: " + texto);
+        }
+        return cantidad.setScale(2, BigDecimal.ROUND_HALF_UP);
+    }
+
+    BigDecimal leerCostoUnitario(String texto) {
+        if (texto == null) {
+            return null;
+        }
+        BigDecimal costo = leerNumero(texto, "costo unitario no válido");
+        if (costo.signum() < 0) {
+            throw new IllegalArgumentException("el costo unitario no puede ser negativo");
+        }
+        if (costo.stripTrailingZeros().scale() > 4) {
+            throw new IllegalArgumentException("el costo unitario admite como máximo 4 decimales: " + texto);
+        }
+        return costo.setScale(4, BigDecimal.ROUND_HALF_UP);
+    }
+
+    // Cantidad y costo unitario: ver la nota de la clase sobre el separador decimal
+    BigDecimal leerNumero(String texto, String noValido) {
+        if (!numero.matcher(texto).matches()) {
+            throw new IllegalArgumentException(noValido + ": " + texto + " (use " + separadorDecimal
+                    + " como separador decimal y ningún separador de miles)");
+        }
+        return new BigDecimal(texto.replace(separadorDecimal, '.'));
+    }
+
+    private String getNombreProducto(String codigo) {
+        return nombresProducto.computeIfAbsent(codigo, c -> XPersistence.getManager()
+                .createQuery("select p.nombre from Producto p where p.codigo = :codigo", String.class)
+                .setParameter("codigo", c)
+                .getResultList()
+                .stream().findFirst().orElse(null));
+    }
+
+    private BigDecimal getPrecioCompra(String codigo) {
+        return preciosCompra.computeIfAbsent(codigo, c -> XPersistence.getManager()
+                .createQuery("select p.precioCompra from Producto p where p.codigo = :codigo", BigDecimal.class)
+                .setParameter("codigo", c)
+                .getSingleResult());
+    }
+
+    private boolean existeProveedor(String codigo) {
+        // find pasa por la caché de segundo nivel de Proveedor
+        return proveedoresExistentes.computeIfAbsent(codigo,
+                c -> XPersistence.getManager().find(Proveedor.class, c) != null);
+    }
+
+    // ================= Grabación por lotes =================
+
+    private void grabarLote(List<FilaMovimiento> lote) {
+        try {
+            // Orden por código: dos importaciones simultáneas bloquean los productos en el mismo orden
+            Map<String, TotalesProducto> totales = new TreeMap<>();
+            for (FilaMovimiento fila : lote) {
+                totales.computeIfAbsent(fila.codigoProducto, c -> new TotalesProducto()).sumar(fila);
+            }
+
+            Set<String> sinStock = new HashSet<>();
+            Map<String, BigDecimal> costosSalida = new HashMap<>();
+            for (Map.Entry<String, TotalesProducto> total : totales.entrySet()) {
+                String codigo = total.getKey();
+                TotalesProducto producto = total.getValue();
+                if (producto.entradas.signum() > 0) {
+                    LibroStock.sumar(codigo, producto.entradas, producto.valorEntradas);
+                }
+                if (producto.salidas.signum() > 0) {
+                    // El costo de salida no cambia al restar: se lee antes, con las entradas ya valoradas
+                    costosSalida.put(codigo, LibroStock.consultarCostoPromedio(codigo));
+                    if (!LibroStock.restar(codigo, producto.salidas)) {
+                        sinStock.add(codigo);
+                    }
+                }
+            }
+
+            List<FilaMovimiento> aceptadas = new ArrayList<>();
+            for (FilaMovimiento fila : lote) {
+                if (fila.tipo == TipoMovimiento.SALIDA) {
+                    fila.costoUnitario = costosSalida.get(fila.codigoProducto);
+                }
+                if (fila.tipo == TipoMovimiento.ENTRADA || !sinStock.contains(fila.codigoProducto)) {
+                    aceptadas.add(fila);
+                }
+                // Si las salidas del lote no caben, se aplican fila a fila y solo se rechazan las que no alcanzan
+                else if (LibroStock.restar(fila.codigoProducto, fila.cantidad)) {
+                    aceptadas.add(fila);
+                }
+                else {
+                    errores.add("Fila " + fila.numero + ": no hay stock disponible suficiente del producto "
+                            + getNombreProducto(fila.codigoProducto) + " para realizar la salida");
+                }
+            }
+
+            insertar(aceptadas);
+            for (FilaMovimiento fila : aceptadas) {
+                CortesStock.ajustar(fila.codigoProducto, fila.tipo, fila.cantidad, fila.fecha);
+            }
+            XPersistence.commit();
+            // Los inserts por JDBC no pasan por los listeners de Movimiento
+            VersionDatos.incrementar();
+            importados += aceptadas.size();
+        }
+        catch (RuntimeException ex) {
+            log.error("Error al grabar un lote de movimientos importados", ex);
+            XPersistence.rollback();
+            for (FilaMovimiento fila : lote) {
+                errores.add("Fila " + fila.numero + ": no se pudo grabar (" + ex.getMessage() + ")");
+            }
+        }
+    }
+
+    private void insertar(List<FilaMovimiento> filas) {
+        // Movimiento usa IDENTITY, con lo que Hibernate no agrupa sus inserts: el batch se hace con JDBC
+        XPersistence.getManager().unwrap(Session.class).doWork(conexion -> {
+            try (PreparedStatement ps = conexion.prepareStatement(INSERTAR_MOVIMIENTO)) {
+                for (FilaMovimiento fila : filas) {
+                    ps.setDate(1, Date.valueOf(fila.fecha));
+                    ps.setString(2, fila.tipo.name());
+                    ps.setBigDecimal(3, fila.cantidad);
+                    ps.setBigDecimal(4, fila.costoUnitario);
+                    ps.setString(5, fila.observaciones);
+                    ps.setString(6, fila.codigoProducto);
+                    ps.setString(7, fila.codigoProveedor);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        });
+    }
+
+    // ================= Lectura de archivos =================
+
+    /**
+     * Recorre los registros del CSV a medida que se piden, sin partir todo el archivo
+     * de antemano. Un campo entre comillas puede contener el separador, saltos de
+     * línea y comillas duplicadas (""). Sin codificación se lee como UTF-8.
+     *
+     * @throws IllegalArgumentException si el archivo no está en esa codificación:
+     *         se rechaza entero antes de importar nada, en lugar de cambiar caracteres.
+     */
+    public static Iterator<String[]> leerCsv(byte[] contenido, String codificacion, String separador) {
+        if (separador == null || separador.length() != 1) {
+            throw new IllegalArgumentException("El separador del CSV debe ser un solo carácter: " + separador);
+        }
+        Charset juegoCaracteres = codificacion == null ? StandardCharsets.UTF_8 : Charset.forName(codificacion);
+        comprobarCodificacion(contenido, juegoCaracteres);
+        return new LectorCsv(new InputStreamReader(new ByteArrayInputStream(contenido), juegoCaracteres),
+                separador.charAt(0));
+    }
+
+    private static void comprobarCodificacion(byte[] contenido, Charset juegoCaracteres) {
+        CharsetDecoder decodificador = juegoCaracteres.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        ByteBuffer entrada = ByteBuffer.wrap(contenido);
+        CharBuffer salida = CharBuffer.allocate(8192);
+        CoderResult resultado;
+        do {
+            salida.clear();
+            resultado = decodificador.decode(entrada, salida, true);
+        }
+        while (resultado.isOverflow());
+        if (resultado.isError()) {
+            throw new IllegalArgumentException("El archivo no está codificado en " + juegoCaracteres.name()
+                    + " (byte " + entrada.position() + "); guárdelo en esa codificación y vuelva a importarlo");
+        }
+    }
+
+    private static void leerXlsx(byte[] contenido, ObjIntConsumer<String[]> destino) throws Exception {
+        try (OPCPackage paquete = OPCPackage.open(new ByteArrayInputStream(contenido))) {
+            XSSFReader lector = new XSSFReader(paquete);
+            XMLReader parser = XMLHelper.newXMLReader();
+            parser.setContentHandler(new XSSFSheetXMLHandler(lector.getStylesTable(),
+                    new ReadOnlySharedStringsTable(paquete), new FilasHoja(destino), new FormatoImportacion(), false));
+            try (InputStream hoja = lector.getSheetsData().next()) {
+                parser.parse(new InputSource(hoja));
+            }
+        }
+    }
+
+    private static void leerXls(byte[] contenido, ObjIntConsumer<String[]> destino) throws Exception {
+        try (Workbook libro = WorkbookFactory.create(new ByteArrayInputStream(contenido))) {
+            for (Row fila : libro.getSheetAt(0)) {
+                String[] columnas = new String[Math.max(fila.getLastCellNum(), 0)];
+                for (int i = 0; i < columnas.length; i++) {
+                    columnas[i] = texto(fila.getCell(i));
+                }
+                destino.accept(columnas, fila.getRowNum() + 1);
+            }
+        }
+    }
+
+    private static String texto(Cell celda) {
+        if (celda == null) {
+            return "";
+        }
+        CellType tipo = celda.getCellType() == CellType.FORMULA ? celda.getCachedFormulaResultType() : celda.getCellType();
+        switch (tipo) {
+            case NUMERIC:
+                return texto(celda.getNumericCellValue(), celda.getCellStyle().getDataFormat(),
+                        celda.getCellStyle().getDataFormatString());
+            case STRING:
+                return celda.getStringCellValue().trim();
+            case BOOLEAN:
+                return String.valueOf(celda.getBooleanCellValue());
+            default:
+                return "";
+        }
+    }
+
+    /**
+     * Una fecha como 2024-03-31 y cualquier otro número con punto decimal y sin
+     * el formato de la celda, que con "#,##0" mostraría mil como "1,000".
+     */
+    private static String texto(double valor, int indiceFormato, String formato) {
+        if (DateUtil.isADateFormat(indiceFormato, formato) && DateUtil.isValidExcelDate(valor)) {
+            return DateUtil.getLocalDateTime(valor).toLocalDate().toString();
+        }
+        return BigDecimal.valueOf(valor).stripTrailingZeros().toPlainString();
+    }
+
+    private static String columna(String[] columnas, int indice) {
+        if (indice >= columnas.length || columnas[indice] == null) {
+            return null;
+        }
+        String valor = columnas[indice].trim();
+        return valor.isEmpty() ? null : valor;
+    }
+
+    private static boolean esVacia(String[] columnas) {
+        for (String columna : columnas) {
+            if (columna != null && !columna.trim().isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean esEncabezado(String[] columnas) {
+        String primera = columna(columnas, 0);
+        return primera != null && primera.equalsIgnoreCase("fecha");
+    }
+
+    /**
+     * Registros de un CSV según RFC 4180, leídos de a uno.
+     */
+    private static class LectorCsv implements Iterator<String[]> {
+
+        private final PushbackReader lector;
+        private final char separador;
+        private String[] siguiente;
+        private boolean terminado;
+
+        LectorCsv(Reader lector, char separador) {
+            this.lector = new PushbackReader(lector);
+            this.separador = separador;
+            // La marca de orden de bytes que Excel pone al guardar "CSV UTF-8"
+            int primero = leer();
+            if (primero != '\uFEFF' && primero != -1) {
+                devolver(primero);
+            }
+        }
+
+        public boolean hasNext() {
+            if (siguiente == null && !terminado) {
+                siguiente = leerRegistro();
+                terminado = siguiente == null;
+            }
+            return siguiente != null;
+        }
+
+        public String[] next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            String[] registro = siguiente;
+            siguiente = null;
+            return registro;
+        }
+
+        private String[] leerRegistro() {
+            List<String> campos = new ArrayList<>();
+            StringBuilder campo = new StringBuilder();
+            boolean entreComillas = false;
+            int caracter = leer();
+            if (caracter == -1) {
+                return null;
+            }
+            while (caracter != -1) {
+                if (entreComillas) {
+                    if (caracter != '"') {
+                        campo.append((char) caracter);
+                    }
+                    else {
+                        int siguienteCaracter = leer();
+                        if (siguienteCaracter == '"') {
+                            campo.append('"');
+                        }
+                        else {
+                            entreComillas = false;
+                            devolver(siguienteCaracter);
+                        }
+                    }
+                }
+                else if (caracter == '"' && campo.toString().trim().isEmpty()) {
+                    entreComillas = true;
+                    campo.setLength(0);
+                }
+                else if (caracter == separador) {
+                    campos.add(campo.toString().trim());
+                    campo.setLength(0);
+                }
+                else if (caracter == '\n') {
+                    break;
+                }
+                else if (caracter == '\r') {
+                    int siguienteCaracter = leer();
+                    if (siguienteCaracter != '\n') {
+                        devolver(siguienteCaracter);
+                    }
+                    break;
+                }
+                else {
+                    campo.append((char) caracter);
+                }
+                caracter = leer();
+            }
+            if (entreComillas) {
+                throw new IllegalArgumentException("hay un campo entre comillas sin cerrar");
+            }
+            campos.add(campo.toString().trim());
+            return campos.toArray(new String[0]);
+        }
+
+        private int leer() {
+            try {
+                return lector.read();
+            }
+            catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        private void devolver(int caracter) {
+            if (caracter == -1) {
+                return;
+            }
+            try {
+                lector.unread(caracter);
+            }
+            catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+    }
+
+    /**
+     * Arma las filas de la hoja con las celdas que entrega el lector por eventos,
+     * rellenando con vacío las que faltan.
+     */
+    private static class FilasHoja implements XSSFSheetXMLHandler.SheetContentsHandler {
+
+        private final ObjIntConsumer<String[]> destino;
+        private final List<String> columnas = new ArrayList<>();
+
+        FilasHoja(ObjIntConsumer<String[]> destino) {
+            this.destino = destino;
+        }
+
+        public void startRow(int fila) {
+            columnas.clear();
+        }
+
+        public void endRow(int fila) {
+            destino.accept(columnas.toArray(new String[0]), fila + 1);
+        }
+
+        public void cell(String referencia, String valor, XSSFComment comentario) {
+            int columna = referencia == null ? columnas.size() : new CellReference(referencia).getCol();
+            while (columnas.size() < columna) {
+                columnas.add("");
+            }
+            columnas.add(valor == null ? "" : valor.trim());
+        }
+    }
+
+    /**
+     * Formato de los números en el lector por eventos: ver texto(double, int, String).
+     */
+    private static class FormatoImportacion extends DataFormatter {
+
+        @Override
+        public String formatRawCellContents(double valor, int indiceFormato, String formato, boolean fechas1904) {
+            return texto(valor, indiceFormato, formato);
+        }
+    }
+
+    private static class FilaMovimiento {
+
+        int numero;
+        LocalDate fecha;
+        String codigoProducto;
+        TipoMovimiento tipo;
+        BigDecimal cantidad;
+        String codigoProveedor;
+        String observaciones;
+        BigDecimal costoUnitario;
+    }
+
+    /**
+     * Entradas (con su valor) y salidas de un producto dentro de un lote.
+     */
+    private static class TotalesProducto {
+
+        BigDecimal entradas = BigDecimal.ZERO;
+        BigDecimal valorEntradas = BigDecimal.ZERO;
+        BigDecimal salidas = BigDecimal.ZERO;
+
+        void sumar(FilaMovimiento fila) {
+            if (fila.tipo == TipoMovimiento.ENTRADA) {
+                entradas = entradas.add(fila.cantidad);
+                valorEntradas = valorEntradas.add(fila.cantidad.multiply(fila.costoUnitario));
+            }
+            else {
+                salidas = salidas.add(fila.cantidad);
+            }
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.abrasa.Inventario.servicios;
+
+import com.abrasa.Inventario.modelo.Categoria;
+import com.abrasa.Inventario.modelo.Producto;
+
+import javax.persistence.PostUpdate;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
+
+/**
+ * Mantiene Producto.textoBusqueda (ver BusquedaProductos) al grabar productos y categorías.
+ */
+public class IndiceBusquedaListener {
+
+    @PrePersist
+    @PreUpdate
+    public void antesDeGrabar(Object entidad) {
+        if (entidad instanceof Producto) {
+            Producto producto = (Producto) entidad;
+            producto.setTextoBusqueda(BusquedaProductos.textoDe(producto));
+        }
+    }
+
+    // El nombre de la categoría forma parte del texto de sus productos
+    @PostUpdate
+    public void despuesDeActualizar(Object entidad) {
+        if (entidad instanceof Categoria) {
+            BusquedaProductos.actualizarCategoria((Categoria) entidad);
+        }
+    }
+}
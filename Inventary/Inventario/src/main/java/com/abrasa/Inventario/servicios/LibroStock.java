@@ -0,0 +1,170 @@
+package com.abrasa.Inventario.servicios;
+
+import com.abrasa.Inventario.modelo.Producto;
+import com.abrasa.Inventario.modelo.TipoMovimiento;
+import org.hibernate.Session;
+import org.openxava.jpa.XPersistence;
+
+import javax.persistence.EntityManager;
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+
+/**
+ * Libro de existencias: los movimientos solo se agregan y el stock del producto
+ * se actualiza con una sentencia UPDATE atómica en la base de datos.
+ *
+ * Así dos movimientos simultáneos sobre el mismo producto no pierden ninguna
+ * actualización y no hace falta bloquear la fila durante toda la petición.
+ * La misma sentencia recalcula la marca bajoMinimo con el stock resultante
+ * (en SQL el lado derecho del SET ve los valores anteriores de la fila). Una
+ * SALIDA solo puede tomar el stock disponible: lo que no está apartado por
+ * reservas activas (stockReservado, ver ReservasStock).
+ *
+ * También mantiene la valoración por costo promedio ponderado: cada ENTRADA suma
+ * su valor (cantidad por costo unitario) y recalcula el costo promedio; cada SALIDA
+ * descuenta su cantidad al costo promedio vigente, que no cambia. Un producto sin
+ * valorar todavía (costoPromedio o valorInventario null) parte de su stock al precio
+ * de compra.
+ */
+public class LibroStock {
+
+    // Comienzo del mensaje de una SALIDA o reserva que no alcanza; la prueba de carga lo reconoce como rechazo
+    public static final String SIN_STOCK_DISPONIBLE = "No hay stock disponible suficiente del producto ";
+
+    // Valor de partida de un producto sin valorar: su stock al precio de compra
+    private static final String VALOR_ANTERIOR = "coalesce(p.valorInventario, p.stockActual * p.precioCompra)";
+    private static final String COSTO_ANTERIOR = "coalesce(p.costoPromedio, p.precioCompra)";
+
+    private LibroStock() {
+    }
+
+    /**
+     * Aplica el movimiento sobre el stock y la valoración del producto y deja los
+     * valores nuevos en la instancia recibida para que la vista muestre los reales.
+     *
+     * @param costoUnitario costo de una ENTRADA; en una SALIDA no se usa.
+     */
+    public static void registrar(Producto producto, TipoMovimiento tipoMovimiento, BigDecimal cantidad,
+                                 BigDecimal costoUnitario) {
+
+        switch (tipoMovimiento) {
+
+            case ENTRADA:
+                sumar(producto.getCodigo(), cantidad, cantidad.multiply(costoUnitario));
+                break;
+
+            case SALIDA:
+                if (!restar(producto.getCodigo(), cantidad)) {
+                    throw new IllegalArgumentException(
+                            SIN_STOCK_DISPONIBLE
+                                    + producto.getNombre()
+                                    + " para realizar la salida (el stock reservado no se puede sacar)"
+                    );
+                }
+                break;
+
+            default:
+                throw new IllegalArgumentException("Tipo de movimiento no soportado");
+        }
+
+        Object[] existencias = getManager()
+                .createQuery("select p.stockActual, p.costoPromedio, p.valorInventario " +
+                        "from Producto p where p.codigo = :codigo", Object[].class)
+                .setParameter("codigo", producto.getCodigo())
+                .getSingleResult();
+        producto.setStockActual((BigDecimal) existencias[0]);
+        producto.setCostoPromedio((BigDecimal) existencias[1]);
+        producto.setValorInventario((BigDecimal) existencias[2]);
+    }
+
+    /**
+     * Suma la cantidad al stock del producto, su valor a la valoración, recalcula el
+     * costo promedio y actualiza la marca de bajo mínimo.
+     *
+     * @param valor cantidad por costo unitario de la entrada.
+     */
+    public static void sumar(String codigoProducto, BigDecimal cantidad, BigDecimal valor) {
+        getManager()
+                .createQuery("update Producto p set p.stockActual = p.stockActual + :cantidad, " +
+                        "p.valorInventario = " + VALOR_ANTERIOR + " + :valor, " +
+                        "p.costoPromedio = (" + VALOR_ANTERIOR + " + :valor) / (p.stockActual + :cantidad), " +
+                        "p.bajoMinimo = case when p.stockActual + :cantidad < p.stockMinimo then true else false end " +
+                        "where p.codigo = :codigo")
+                .setParameter("cantidad", cantidad)
+                .setParameter("valor", valor)
+                .setParameter("codigo", codigoProducto)
+                .executeUpdate();
+    }
+
+    /**
+     * Resta la cantidad solo si el stock disponible (sin lo reservado) alcanza, descuenta su valor al costo
+     * promedio y actualiza la marca de bajo mínimo.
+     *
+     * @return false si el disponible no alcanza, en ese caso no se modifica nada.
+     */
+    public static boolean restar(String codigoProducto, BigDecimal cantidad) {
+        int filas = getManager()
+                .createQuery("update Producto p set p.stockActual = p.stockActual - :cantidad, " +
+                        // Al vaciar el stock el valor queda en cero, sin restos de redondeo
+                        "p.valorInventario = case when p.stockActual = :cantidad then 0 " +
+                        "else (" + VALOR_ANTERIOR + " - :cantidad * " + COSTO_ANTERIOR + ") end, " +
+                        "p.costoPromedio = " + COSTO_ANTERIOR + ", " +
+                        "p.bajoMinimo = case when p.stockActual - :cantidad < p.stockMinimo then true else false end " +
+                        "where p.codigo = :codigo and p.stockActual - p.stockReservado >= :cantidad")
+                .setParameter("cantidad", cantidad)
+                .setParameter("codigo", codigoProducto)
+                .executeUpdate();
+        return filas > 0;
+    }
+
+    /**
+     * Recalcula la marca de bajo mínimo con un stock mínimo nuevo y el stock que
+     * tiene la fila. Se llama desde el flush que graba el producto, así que va por
+     * JDBC: un UPDATE de JPQL volvería a disparar el flush.
+     */
+    public static void marcarBajoMinimo(String codigoProducto, BigDecimal stockMinimo) {
+        getManager().unwrap(Session.class).doWork(conexion -> {
+            try (PreparedStatement ps = conexion.prepareStatement(
+                    "update producto set bajoMinimo = stockActual < ? where codigo = ?")) {
+                ps.setBigDecimal(1, stockMinimo);
+                ps.setString(2, codigoProducto);
+                ps.executeUpdate();
+            }
+        });
+    }
+
+    public static BigDecimal consultarStock(String codigoProducto) {
+        return getManager()
+                .createQuery("select p.stockActual from Producto p where p.codigo = :codigo", BigDecimal.class)
+                .setParameter("codigo", codigoProducto)
+                .getSingleResult();
+    }
+
+    /**
+     * Costo al que sale del stock una SALIDA del producto en este momento.
+     */
+    public static BigDecimal consultarCostoPromedio(String codigoProducto) {
+        return getManager()
+                .createQuery("select " + COSTO_ANTERIOR + " from Producto p where p.codigo = :codigo", BigDecimal.class)
+                .setParameter("codigo", codigoProducto)
+                .getSingleResult();
+    }
+
+    /**
+     * Valora al precio de compra los productos que todavía no tienen valoración
+     * (los anteriores a ella, o los cargados directamente en la base).
+     *
+     * @return cantidad de productos valorados.
+     */
+    public static int inicializarValoracion() {
+        return getManager()
+                .createQuery("update Producto p set p.costoPromedio = " + COSTO_ANTERIOR + ", " +
+                        "p.valorInventario = " + VALOR_ANTERIOR + " " +
+                        "where p.costoPromedio is null or p.valorInventario is null")
+                .executeUpdate();
+    }
+
+    private static EntityManager getManager() {
+        return XPersistence.getManager();
+    }
+}
@@ -0,0 +1,78 @@
+package com.abrasa.Inventario.servicios;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.output.MigrateResult;
+
+import javax.naming.InitialContext;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Aplica las migraciones de src/main/resources/db/migration (Flyway) antes de
+ * que arranque JPA, que con hibernate.hbm2ddl.auto=validate ya no crea ni
+ * modifica nada: solo comprueba que el esquema coincide con las entidades.
+ *
+ * Un cambio en las entidades que toque la base va acompañado de un
+ * V<n>__descripcion.sql nuevo; las migraciones ya aplicadas no se editan
+ * (Flyway compara su checksum y no arranca si cambiaron). Una base sin tabla de
+ * historial (creada por hbm2ddl=update) se toma con baselineVersion 0 y pasa por
+ * V1, que solo agrega lo que le falte. Las migraciones están escritas para
+ * PostgreSQL; con otra base no se aplican.
+ */
+public class MigracionesEsquema {
+
+    private static final Log log = LogFactory.getLog(MigracionesEsquema.class);
+
+    // El mismo recurso que non-jta-data-source en persistence.xml
+    private static final String DATA_SOURCE = "java:comp/env/jdbc/InventarioAbrasaDS";
+
+    private MigracionesEsquema() {
+    }
+
+    /**
+     * Lleva la base a la última versión; si una migración falla, la aplicación no arranca.
+     */
+    public static void aplicar() {
+        DataSource dataSource;
+        try {
+            dataSource = (DataSource) new InitialContext().lookup(DATA_SOURCE);
+        }
+        catch (Exception ex) {
+            throw new IllegalStateException("No se encontró el DataSource " + DATA_SOURCE, ex);
+        }
+        aplicar(dataSource);
+    }
+
+    public static void aplicar(DataSource dataSource) {
+        String base = nombreBase(dataSource);
+        if (!base.toLowerCase().contains("postgresql")) {
+            log.warn("Migraciones omitidas: están escritas para PostgreSQL y la base es " + base);
+            return;
+        }
+        long inicio = System.currentTimeMillis();
+        MigrateResult resultado = Flyway.configure()
+                .dataSource(dataSource)
+                .locations("classpath:db/migration")
+                .encoding("ISO-8859-1")
+                .baselineOnMigrate(true)
+                .baselineVersion("0")
+                .load()
+                .migrate();
+        log.info("Esquema en la versión " + (resultado.targetSchemaVersion != null
+                ? resultado.targetSchemaVersion : resultado.initialSchemaVersion)
+                + ": " + resultado.migrationsExecuted + " migraciones aplicadas en "
+                + (System.currentTimeMillis() - inicio) + " ms");
+    }
+
+    private static String nombreBase(DataSource dataSource) {
+        try (Connection conexion = dataSource.getConnection()) {
+            return conexion.getMetaData().getDatabaseProductName();
+        }
+        catch (SQLException ex) {
+            throw new IllegalStateException("No se pudo conectar con la base para aplicar las migraciones", ex);
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package com.abrasa.Inventario.servicios;
+
+import com.abrasa.Inventario.modelo.EstadoReserva;
+import com.abrasa.Inventario.modelo.Movimiento;
+import com.abrasa.Inventario.modelo.Producto;
+import com.abrasa.Inventario.modelo.Reserva;
+import com.abrasa.Inventario.modelo.TipoMovimiento;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openxava.jpa.XPersistence;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.TypedQuery;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reservas de stock para ventas pendientes, con el mismo criterio que LibroStock:
+ * sentencias UPDATE atómicas condicionadas, sin leer-comprobar-escribir en Java.
+ *
+ * Producto.stockReservado suma las reservas activas del producto, así que el
+ * disponible (stockActual - stockReservado) se lee de una sola fila. Reservar
+ * incrementa stockReservado solo si el disponible alcanza; si dos ventas piden lo
+ * último a la vez, la base ordena los dos UPDATE y el segundo no encuentra la fila.
+ * Cada cambio de estado de una reserva es un UPDATE condicionado a que siga ACTIVA,
+ * de modo que confirmar, liberar y vencer no pueden devolver dos veces la misma
+ * cantidad aunque coincidan.
+ *
+ * Las reservas vencidas se liberan al reservar el mismo producto y, para las demás,
+ * en una revisión cada MINUTOS_ENTRE_REVISIONES.
+ */
+public class ReservasStock {
+
+    private static final Log log = LogFactory.getLog(ReservasStock.class);
+
+    public static final Duration DURACION_POR_DEFECTO = Duration.ofHours(48);
+
+    private static final long MINUTOS_ENTRE_REVISIONES = 1;
+
+    private static ScheduledExecutorService programador;
+
+    private ReservasStock() {
+    }
+
+    /**
+     * Aparta la cantidad si el disponible alcanza y deja el valor nuevo en la
+     * instancia recibida. Lo llama Reserva al crearse.
+     */
+    public static void retener(Producto producto, BigDecimal cantidad) {
+        // Las vencidas que todavía no liberó la revisión no deben quitarle stock a esta
+        vencer(producto.getCodigo());
+
+        int filas = getManager()
+                .createQuery("update Producto p set p.stockReservado = p.stockReservado + :cantidad " +
+                        "where p.codigo = :codigo and p.stockActual - p.stockReservado >= :cantidad")
+                .setParameter("cantidad", cantidad)
+                .setParameter("codigo", producto.getCodigo())
+                .executeUpdate();
+        if (filas == 0) {
+            throw new IllegalArgumentException(
+                    LibroStock.SIN_STOCK_DISPONIBLE + producto.getNombre()
+                            + " para reservar " + cantidad + "; disponible: "
+                            + consultarDisponible(producto.getCodigo()));
+        }
+        producto.setStockReservado(getManager()
+                .createQuery("select p.stockReservado from Producto p where p.codigo = :codigo", BigDecimal.class)
+                .setParameter("codigo", producto.getCodigo())
+                .getSingleResult());
+    }
+
+    /**
+     * Stock que se puede reservar o sacar: el actual menos lo reservado.
+     */
+    public static BigDecimal consultarDisponible(String codigoProducto) {
+        return getManager()
+                .createQuery("select p.stockActual - p.stockReservado from Producto p where p.codigo = :codigo",
+                        BigDecimal.class)
+                .setParameter("codigo", codigoProducto)
+                .getSingleResult();
+    }
+
+    /**
+     * Convierte la reserva en una SALIDA de su cantidad con fecha de hoy.
+     *
+     * @return la SALIDA registrada.
+     */
+    public static Movimiento confirmar(Long idReserva) {
+        Reserva reserva = buscar(idReserva);
+        LocalDateTime ahora = LocalDateTime.now();
+        int filas = getManager()
+                .createQuery("update Reserva r set r.estado = :confirmada, r.finalizada = :ahora " +
+                        "where r.id = :id and r.estado = :activa and r.vence > :ahora")
+                .setParameter("confirmada", EstadoReserva.CONFIRMADA)
+                .setParameter("activa", EstadoReserva.ACTIVA)
+                .setParameter("ahora", ahora)
+                .setParameter("id", idReserva)
+                .executeUpdate();
+        if (filas == 0) {
+            throw new IllegalArgumentException(sinEfecto(idReserva));
+        }
+
+        // Primero se devuelve lo reservado: así la SALIDA, que solo toma el disponible, puede sacarlo
+        devolver(reserva.getProducto().getCodigo(), reserva.getCantidad());
+        Movimiento salida = new Movimiento();
+        salida.setProducto(reserva.getProducto());
+        salida.setTipoMovimiento(TipoMovimiento.SALIDA);
+        salida.setFecha(LocalDate.now());
+        salida.setCantidad(reserva.getCantidad());
+        salida.setObservaciones("Reserva " + idReserva
+                + (reserva.getCliente() != null ? " - " + reserva.getCliente().getNombre() : ""));
+        getManager().persist(salida);
+
+        getManager()
+                .createQuery("update Reserva r set r.movimiento = :salida where r.id = :id")
+                .setParameter("salida", salida)
+                .setParameter("id", idReserva)
+                .executeUpdate();
+        return salida;
+    }
+
+    /**
+     * Devuelve la cantidad de una reserva activa al disponible.
+     */
+    public static void liberar(Long idReserva) {
+        Reserva reserva = buscar(idReserva);
+        if (!finalizar(idReserva, EstadoReserva.LIBERADA, LocalDateTime.now())) {
+            throw new IllegalArgumentException(sinEfecto(idReserva));
+        }
+        devolver(reserva.getProducto().getCodigo(), reserva.getCantidad());
+    }
+
+    /**
+     * Libera todas las reservas vencidas.
+     *
+     * @return cuántas se liberaron.
+     */
+    public static int vencerTodas() {
+        return vencer(null);
+    }
+
+    /**
+     * Corrige stockReservado en los productos donde no coincide con la suma de sus
+     * reservas activas (por ejemplo, tras tocar la tabla reserva a mano). Lo
+     * llaman las tareas nocturnas.
+     *
+     * @return cuántos productos se corrigieron.
+     */
+    public static int conciliar() {
+        List<String> codigos = getManager()
+                .createQuery("select p.codigo from Producto p where p.stockReservado <> coalesce((" +
+                        "select sum(r.cantidad) from Reserva r where r.producto = p and r.estado = :activa), 0)",
+                        String.class)
+                .setParameter("activa", EstadoReserva.ACTIVA)
+                .getResultList();
+        int corregidos = 0;
+        for (String codigo : codigos) {
+            // Con la fila bloqueada, la suma ya incluye las reservas que la estaban modificando
+            BigDecimal anterior = getManager()
+                    .find(Producto.class, codigo, LockModeType.PESSIMISTIC_WRITE)
+                    .getStockReservado();
+            BigDecimal reservado = getManager()
+                    .createQuery("select coalesce(sum(r.cantidad), 0) from Reserva r " +
+                            "where r.producto.codigo = :codigo and r.estado = :activa", BigDecimal.class)
+                    .setParameter("codigo", codigo)
+                    .setParameter("activa", EstadoReserva.ACTIVA)
+                    .getSingleResult();
+            if (reservado.compareTo(anterior) != 0) {
+                getManager()
+                        .createQuery("update Producto p set p.stockReservado = :reservado where p.codigo = :codigo")
+                        .setParameter("reservado", reservado)
+                        .setParameter("codigo", codigo)
+                        .executeUpdate();
+                log.warn("Stock reservado del producto " + codigo + " corregido de " + anterior + " a " + reservado);
+                corregidos++;
+            }
+        }
+        return corregidos;
+    }
+
+    /**
+     * Lo llama InicioAplicacionListener; el hilo hereda el class loader de la
+     * aplicación, como el de TareasNocturnas.
+     */
+    public static synchronized void iniciar() {
+        programador = Executors.newSingleThreadScheduledExecutor(tarea -> {
+            Thread hilo = new Thread(tarea, "vencimiento-reservas");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        programador.scheduleWithFixedDelay(ReservasStock::revisar,
+                MINUTOS_ENTRE_REVISIONES, MINUTOS_ENTRE_REVISIONES, TimeUnit.MINUTES);
+    }
+
+    public static synchronized void detener() {
+        if (programador != null) {
+            programador.shutdownNow();
+        }
+    }
+
+    private static void revisar() {
+        try {
+            int vencidas = vencerTodas();
+            XPersistence.commit();
+            if (vencidas > 0) {
+                log.info(vencidas + " reservas vencidas liberadas");
+            }
+        }
+        catch (Exception ex) {
+            // Si la tarea lanza, el programador no vuelve a ejecutarla
+            log.error("Error al liberar las reservas vencidas", ex);
+            XPersistence.rollback();
+        }
+        finally {
+            XPersistence.reset();
+        }
+    }
+
+    /**
+     * Pasa a VENCIDA las reservas activas cuyo vencimiento ya pasó, de un producto
+     * o de todos (codigoProducto null), y devuelve sus cantidades.
+     */
+    private static int vencer(String codigoProducto) {
+        LocalDateTime ahora = LocalDateTime.now();
+        TypedQuery<Object[]> consulta = getManager()
+                .createQuery("select r.id, r.producto.codigo, r.cantidad from Reserva r " +
+                        "where r.estado = :activa and r.vence <= :ahora" +
+                        (codigoProducto != null ? " and r.producto.codigo = :codigo" : ""), Object[].class)
+                .setParameter("activa", EstadoReserva.ACTIVA)
+                .setParameter("ahora", ahora);
+        if (codigoProducto != null) {
+            consulta.setParameter("codigo", codigoProducto);
+        }
+        int vencidas = 0;
+        for (Object[] fila : consulta.getResultList()) {
+            // Otro hilo pudo confirmarla o liberarla entre la consulta y ahora
+            if (finalizar((Long) fila[0], EstadoReserva.VENCIDA, ahora)) {
+                devolver((String) fila[1], (BigDecimal) fila[2]);
+                vencidas++;
+            }
+        }
+        return vencidas;
+    }
+
+    private static boolean finalizar(Long idReserva, EstadoReserva estado, LocalDateTime ahora) {
+        return getManager()
+                .createQuery("update Reserva r set r.estado = :estado, r.finalizada = :ahora " +
+                        "where r.id = :id and r.estado = :activa")
+                .setParameter("estado", estado)
+                .setParameter("activa", EstadoReserva.ACTIVA)
+                .setParameter("ahora", ahora)
+                .setParameter("id", idReserva)
+                .executeUpdate() > 0;
+    }
+
+    private static void devolver(String codigoProducto, BigDecimal cantidad) {
+        getManager()
+                .createQuery("update Producto p set p.stockReservado = p.stockReservado - :cantidad " +
+                        "where p.codigo = :codigo")
+                .setParameter("cantidad", cantidad)
+                .setParameter("codigo", codigoProducto)
+                .executeUpdate();
+    }
+
+    private static Reserva buscar(Long idReserva) {
+        Reserva reserva = getManager().find(Reserva.class, idReserva);
+        if (reserva == null) {
+            throw new IllegalArgumentException("No existe la reserva " + idReserva);
+        }
+        return reserva;
+    }
+
+    // Por qué no se pudo confirmar o liberar: ya estaba finalizada o venció sin que la revisión la liberara
+    private static String sinEfecto(Long idReserva) {
+        Object[] reserva = getManager()
+                .createQuery("select r.estado, r.vence from Reserva r where r.id = :id", Object[].class)
+                .setParameter("id", idReserva)
+                .getSingleResult();
+        if (reserva[0] == EstadoReserva.ACTIVA) {
+            return "La reserva " + idReserva + " venció el " + reserva[1];
+        }
+        return "La reserva " + idReserva + " ya no está activa: " + reserva[0].toString().toLowerCase();
+    }
+
+    private static EntityManager getManager() {
+        return XPersistence.getManager();
+    }
+}
@@ -0,0 +1,71 @@
+package com.abrasa.Inventario.servicios;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openxava.jpa.XPersistence;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tareas de cierre que corren cada noche a la 1:00 (y una vez al arrancar, por
+ * si el servidor estuvo apagado): los cortes de stock de los meses cerrados,
+ * la valoración de los productos que no la tengan, la del stock reservado
+ * contra las reservas activas y la del stock contra los movimientos.
+ */
+public class TareasNocturnas {
+
+    private static final Log log = LogFactory.getLog(TareasNocturnas.class);
+
+    private static final LocalTime HORA = LocalTime.of(1, 0);
+
+    private static ScheduledExecutorService programador;
+
+    private TareasNocturnas() {
+    }
+
+    /**
+     * Lo llama InicioAplicacionListener; el hilo hereda el class loader de la
+     * aplicación, con lo que la unidad "default" encuentra su datasource.
+     */
+    public static synchronized void iniciar() {
+        programador = Executors.newSingleThreadScheduledExecutor(tarea -> {
+            Thread hilo = new Thread(tarea, "tareas-nocturnas");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        programador.schedule(TareasNocturnas::ejecutar, 1, TimeUnit.MINUTES);
+        long hastaLaHora = Duration.between(LocalDateTime.now(), LocalDate.now().plusDays(1).atTime(HORA)).toMinutes();
+        programador.scheduleAtFixedRate(TareasNocturnas::ejecutar,
+                hastaLaHora % TimeUnit.DAYS.toMinutes(1), TimeUnit.DAYS.toMinutes(1), TimeUnit.MINUTES);
+    }
+
+    public static synchronized void detener() {
+        if (programador != null) {
+            programador.shutdownNow();
+        }
+    }
+
+    private static void ejecutar() {
+        try {
+            CortesStock.generarPendientes(LocalDate.now());
+            LibroStock.inicializarValoracion();
+            ReservasStock.conciliar();
+            XPersistence.commit();
+            ConciliadorStock.revisar();
+        }
+        catch (Exception ex) {
+            // Si la tarea lanza, el programador no vuelve a ejecutarla
+            log.error("Error en las tareas nocturnas", ex);
+            XPersistence.rollback();
+        }
+        finally {
+            XPersistence.reset();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.abrasa.Inventario.web;
+
+import com.abrasa.Inventario.reportes.ColaReportes;
+import com.abrasa.Inventario.reportes.TrabajoReporte;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * Entrega el PDF de un reporte generado por la ColaReportes.
+ * Solo lo puede descargar la sesión que lo pidió, mientras no venza.
+ */
+public class DescargarReporteServlet extends HttpServlet {
+
+    // Debe coincidir con el url-pattern de web.xml
+    public static String getURI(TrabajoReporte trabajo) {
+        return "/xava/reporte-generado?id=" + trabajo.getId();
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        String id = request.getParameter("id");
+        HttpSession sesion = request.getSession(false);
+        TrabajoReporte trabajo = ColaReportes.buscar(id);
+        if (sesion == null || trabajo == null || !ColaReportes.perteneceASesion(sesion, id)
+                || trabajo.getEstado() != TrabajoReporte.Estado.TERMINADO || !trabajo.getArchivo().exists()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        response.setContentType("application/pdf");
+        response.setHeader("Content-Disposition", "inline; filename=\"" + trabajo.getNombreArchivo() + ".pdf\"");
+        response.setContentLengthLong(trabajo.getArchivo().length());
+        Files.copy(trabajo.getArchivo().toPath(), response.getOutputStream());
+    }
+}
@@ -0,0 +1,46 @@
+package com.abrasa.Inventario.web;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Duración de cada fase del arranque, para el resumen que InicioAplicacionListener
+ * deja en el log.
+ */
+class FasesArranque {
+
+    private static final Log log = LogFactory.getLog(FasesArranque.class);
+
+    private final long inicio = System.currentTimeMillis();
+    private final List<String> fases = new ArrayList<>();
+
+    void medir(String fase, Runnable tarea) {
+        long desde = System.currentTimeMillis();
+        try {
+            tarea.run();
+        }
+        finally {
+            fases.add(fase + " " + (System.currentTimeMillis() - desde) + " ms");
+        }
+    }
+
+    /**
+     * Escribe las fases y el tiempo total: desde que arrancó el listener y desde
+     * que arrancó la JVM, que es lo que espera quien levanta el servidor.
+     */
+    void informar() {
+        long ahora = System.currentTimeMillis();
+        StringBuilder resumen = new StringBuilder("Arranque de la aplicación en ")
+                .append(ahora - inicio).append(" ms (")
+                .append(ahora - ManagementFactory.getRuntimeMXBean().getStartTime())
+                .append(" ms desde el inicio de la JVM)");
+        for (String fase : fases) {
+            resumen.append("\n  ").append(fase);
+        }
+        log.info(resumen);
+    }
+}
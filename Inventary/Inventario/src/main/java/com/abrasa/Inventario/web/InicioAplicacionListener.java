@@ -0,0 +1,52 @@
+package com.abrasa.Inventario.web;
+
+import com.abrasa.Inventario.reportes.ColaReportes;
+import com.abrasa.Inventario.reportes.PlantillasReporte;
+import com.abrasa.Inventario.servicios.BusquedaProductos;
+import com.abrasa.Inventario.servicios.MigracionesEsquema;
+import com.abrasa.Inventario.servicios.ReservasStock;
+import com.abrasa.Inventario.servicios.TareasNocturnas;
+import org.openxava.jpa.XPersistence;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+
+/**
+ * Arranque y parada de los servicios propios de la aplicación (registrado en web.xml).
+ *
+ * Todo corre en orden y un error impide que la aplicación arranque; el log deja
+ * el tiempo de cada fase.
+ */
+public class InicioAplicacionListener implements ServletContextListener {
+
+    @Override
+    public void contextInitialized(ServletContextEvent evento) {
+        FasesArranque fases = new FasesArranque();
+        // Antes que cualquier uso de JPA: hbm2ddl solo valida el esquema que dejan las migraciones
+        fases.medir("migraciones", MigracionesEsquema::aplicar);
+        fases.medir("plantillas de reporte", PlantillasReporte::precargar);
+        fases.medir("JPA", InicioAplicacionListener::iniciarJpa);
+        fases.medir("texto de búsqueda", BusquedaProductos::preparar);
+        TareasNocturnas.iniciar();
+        ReservasStock.iniciar();
+        fases.informar();
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent evento) {
+        ColaReportes.detener();
+        TareasNocturnas.detener();
+        ReservasStock.detener();
+    }
+
+    // La primera llamada a getManager() crea la EntityManagerFactory y valida el esquema
+    private static void iniciarJpa() {
+        try {
+            XPersistence.getManager();
+        }
+        finally {
+            XPersistence.reset();
+        }
+    }
+
+}
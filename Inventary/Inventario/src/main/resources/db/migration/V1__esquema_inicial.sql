@@ -0,0 +1,171 @@
+-- Esquema de la aplicacin tal como lo dejaba hibernate.hbm2ddl.auto=update.
+--
+-- Las bases que ya existan (creadas por hbm2ddl) pasan por aqu tambin: cada
+-- sentencia es idempotente y solo agrega lo que falte, por ejemplo las columnas
+-- que se sumaron a las entidades despus de la ltima actualizacin de esa base.
+-- Los nombres de restricciones son los que generaba Hibernate, para no duplicarlas.
+
+create table if not exists categoria (
+    id bigserial not null,
+    activa boolean not null,
+    descripcion varchar(200),
+    nombre varchar(60) not null,
+    primary key (id)
+);
+
+create table if not exists cliente (
+    codigo varchar(15) not null,
+    activo boolean not null,
+    departamento varchar(40),
+    direccion varchar(200),
+    email varchar(80),
+    limiteCredito numeric(14, 2),
+    municipio varchar(40),
+    nombre varchar(80),
+    permiteCredito boolean not null,
+    saldoPendiente numeric(14, 2),
+    telefono varchar(30),
+    tipoCliente varchar(30),
+    primary key (codigo)
+);
+
+create table if not exists proveedor (
+    codigo varchar(15) not null,
+    activo boolean not null,
+    celular varchar(30),
+    departamento varchar(40),
+    direccion varchar(200),
+    email varchar(80),
+    limiteCredito numeric(14, 2),
+    manejaCredito boolean not null,
+    municipio varchar(40),
+    nombreComercial varchar(120),
+    nombreLegal varchar(120),
+    pais varchar(40),
+    plazo_credito_dias int4,
+    saldoPendiente numeric(14, 2),
+    sitioWeb varchar(100),
+    telefono varchar(30),
+    tipoProveedor varchar(40),
+    primary key (codigo)
+);
+
+create table if not exists producto (
+    codigo varchar(15) not null,
+    activo boolean not null,
+    bajoMinimo boolean default false not null,
+    costoPromedio numeric(14, 4),
+    descripcion varchar(200),
+    iva numeric(5, 2),
+    nombre varchar(80),
+    precioCompra numeric(12, 2),
+    precioVenta numeric(12, 2),
+    stockActual numeric(12, 2),
+    stockMinimo numeric(12, 2),
+    textoBusqueda varchar(400),
+    tipo varchar(30),
+    unidadMedida varchar(20),
+    valorInventario numeric(16, 2),
+    categoria_id int8 not null,
+    proveedor_codigo varchar(15) not null,
+    primary key (codigo)
+);
+
+create table if not exists movimiento (
+    id bigserial not null,
+    cantidad numeric(12, 2),
+    costoUnitario numeric(12, 4),
+    fecha date,
+    observaciones varchar(200),
+    tipoMovimiento varchar(255),
+    producto_codigo varchar(15) not null,
+    proveedor_codigo varchar(15),
+    primary key (id)
+);
+
+create table if not exists corte_stock (
+    id bigserial not null,
+    cantidad numeric(12, 2) not null,
+    fecha date not null,
+    producto_codigo varchar(15) not null,
+    primary key (id)
+);
+
+-- Tablas propias de OpenXava (galera de imgenes y comentarios)
+create table if not exists IMAGES (
+    ID varchar(32) not null,
+    GALLERY varchar(32),
+    image bytea,
+    primary key (ID)
+);
+
+create table if not exists OXDISCUSSIONCOMMENTS (
+    id varchar(32) not null,
+    comment oid,
+    discussionId varchar(32),
+    time timestamp,
+    userName varchar(30),
+    primary key (id)
+);
+
+-- Columnas agregadas a tablas que ya existan
+alter table producto add column if not exists bajoMinimo boolean default false not null;
+alter table producto add column if not exists costoPromedio numeric(14, 4);
+alter table producto add column if not exists valorInventario numeric(16, 2);
+alter table producto add column if not exists textoBusqueda varchar(400);
+alter table movimiento add column if not exists costoUnitario numeric(12, 4);
+
+create index if not exists ix_producto_bajo_minimo on producto (bajoMinimo, activo);
+create index if not exists ix_movimiento_fecha_producto on movimiento (fecha, producto_codigo);
+create index if not exists ix_movimiento_fecha_id on movimiento (fecha, id);
+create index if not exists ix_movimiento_producto on movimiento (producto_codigo, tipoMovimiento, cantidad);
+create index if not exists ix_corte_stock_fecha on corte_stock (fecha);
+create index if not exists IDXbhlx4vunn24ym1tbrlgq8g30m on OXDISCUSSIONCOMMENTS (discussionId);
+
+-- Restricciones: "add constraint" no admite "if not exists"
+do $$
+begin
+    alter table categoria add constraint UK_35t4wyxqrevf09uwx9e9p6o75 unique (nombre);
+exception when duplicate_object or duplicate_table then null;
+end $$;
+
+do $$
+begin
+    alter table corte_stock add constraint uk_corte_stock_producto_fecha unique (producto_codigo, fecha);
+exception when duplicate_object or duplicate_table then null;
+end $$;
+
+do $$
+begin
+    alter table corte_stock add constraint FKiqcd6wsy60ufjng24s41oopku
+        foreign key (producto_codigo) references producto;
+exception when duplicate_object then null;
+end $$;
+
+do $$
+begin
+    alter table movimiento add constraint FKk9sbl52u23woj2rhv0aeyjeyq
+        foreign key (producto_codigo) references producto;
+exception when duplicate_object then null;
+end $$;
+
+do $$
+begin
+    alter table movimiento add constraint FKsdx2dwhuxrbpctnljoc14hn1u
+        foreign key (proveedor_codigo) references proveedor;
+exception when duplicate_object then null;
+end $$;
+
+do $$
+begin
+    alter table producto add constraint FKodqr7965ok9rwquj1utiamt0m
+        foreign key (categoria_id) references categoria;
+exception when duplicate_object then null;
+end $$;
+
+do $$
+begin
+    alter table producto add constraint FKefmyxlna3dbase8myj342g297
+        foreign key (proveedor_codigo) references proveedor;
+exception when duplicate_object then null;
+end $$;
@@ -0,0 +1,70 @@
+-- ndices para los filtros de las listas y la bsqueda de productos.
+--
+-- Con toUpperForStringArgumentsInConditions=true los filtros de las listas se
+-- traducen a "upper(columna) like ?". Por cada columna de texto que aparece en
+-- algn @Tab: upper(columna) text_pattern_ops para "empieza por", "igual" y el
+-- orden, y un GIN de trigramas sobre upper(columna) para "contiene", el
+-- comparador por defecto. Al agregar una columna de texto a un @Tab, agregar
+-- sus dos ndices en una migracin nueva.
+
+create index if not exists ix_cliente_nombre_upper on cliente (upper(nombre) text_pattern_ops);
+create index if not exists ix_cliente_telefono_upper on cliente (upper(telefono) text_pattern_ops);
+create index if not exists ix_cliente_tipocliente_upper on cliente (upper(tipocliente) text_pattern_ops);
+create index if not exists ix_movimiento_observaciones_upper on movimiento (upper(observaciones) text_pattern_ops);
+create index if not exists ix_producto_codigo_upper on producto (upper(codigo) text_pattern_ops);
+create index if not exists ix_producto_descripcion_upper on producto (upper(descripcion) text_pattern_ops);
+create index if not exists ix_producto_nombre_upper on producto (upper(nombre) text_pattern_ops);
+create index if not exists ix_producto_tipo_upper on producto (upper(tipo) text_pattern_ops);
+create index if not exists ix_producto_unidadmedida_upper on producto (upper(unidadmedida) text_pattern_ops);
+create index if not exists ix_proveedor_celular_upper on proveedor (upper(celular) text_pattern_ops);
+create index if not exists ix_proveedor_codigo_upper on proveedor (upper(codigo) text_pattern_ops);
+create index if not exists ix_proveedor_departamento_upper on proveedor (upper(departamento) text_pattern_ops);
+create index if not exists ix_proveedor_direccion_upper on proveedor (upper(direccion) text_pattern_ops);
+create index if not exists ix_proveedor_email_upper on proveedor (upper(email) text_pattern_ops);
+create index if not exists ix_proveedor_municipio_upper on proveedor (upper(municipio) text_pattern_ops);
+create index if not exists ix_proveedor_nombrecomercial_upper on proveedor (upper(nombrecomercial) text_pattern_ops);
+create index if not exists ix_proveedor_nombrelegal_upper on proveedor (upper(nombrelegal) text_pattern_ops);
+create index if not exists ix_proveedor_pais_upper on proveedor (upper(pais) text_pattern_ops);
+create index if not exists ix_proveedor_sitioweb_upper on proveedor (upper(sitioweb) text_pattern_ops);
+create index if not exists ix_proveedor_telefono_upper on proveedor (upper(telefono) text_pattern_ops);
+create index if not exists ix_proveedor_tipoproveedor_upper on proveedor (upper(tipoproveedor) text_pattern_ops);
+
+-- Los ndices de trigramas necesitan la extensin pg_trgm. Es "trusted" desde
+-- PostgreSQL 13 (la crea el dueo de la base sin ser superusuario), pero en una
+-- versin anterior, o sin el paquete contrib instalado, crearla falla. En ese
+-- caso la migracin sigue sin estos ndices: "contiene" funciona igual, solo que
+-- recorriendo la tabla. Para agregarlos despus, un superusuario crea la
+-- extensin y se ejecuta este bloque a mano.
+do $$
+begin
+    create extension if not exists pg_trgm;
+
+    create index if not exists ix_cliente_nombre_trgm on cliente using gin (upper(nombre) gin_trgm_ops);
+    create index if not exists ix_cliente_telefono_trgm on cliente using gin (upper(telefono) gin_trgm_ops);
+    create index if not exists ix_cliente_tipocliente_trgm on cliente using gin (upper(tipocliente) gin_trgm_ops);
+    create index if not exists ix_movimiento_observaciones_trgm on movimiento using gin (upper(observaciones) gin_trgm_ops);
+    create index if not exists ix_producto_codigo_trgm on producto using gin (upper(codigo) gin_trgm_ops);
+    create index if not exists ix_producto_descripcion_trgm on producto using gin (upper(descripcion) gin_trgm_ops);
+    create index if not exists ix_producto_nombre_trgm on producto using gin (upper(nombre) gin_trgm_ops);
+    create index if not exists ix_producto_tipo_trgm on producto using gin (upper(tipo) gin_trgm_ops);
+    create index if not exists ix_producto_unidadmedida_trgm on producto using gin (upper(unidadmedida) gin_trgm_ops);
+    create index if not exists ix_proveedor_celular_trgm on proveedor using gin (upper(celular) gin_trgm_ops);
+    create index if not exists ix_proveedor_codigo_trgm on proveedor using gin (upper(codigo) gin_trgm_ops);
+    create index if not exists ix_proveedor_departamento_trgm on proveedor using gin (upper(departamento) gin_trgm_ops);
+    create index if not exists ix_proveedor_direccion_trgm on proveedor using gin (upper(direccion) gin_trgm_ops);
+    create index if not exists ix_proveedor_email_trgm on proveedor using gin (upper(email) gin_trgm_ops);
+    create index if not exists ix_proveedor_municipio_trgm on proveedor using gin (upper(municipio) gin_trgm_ops);
+    create index if not exists ix_proveedor_nombrecomercial_trgm on proveedor using gin (upper(nombrecomercial) gin_trgm_ops);
+    create index if not exists ix_proveedor_nombrelegal_trgm on proveedor using gin (upper(nombrelegal) gin_trgm_ops);
+    create index if not exists ix_proveedor_pais_trgm on proveedor using gin (upper(pais) gin_trgm_ops);
+    create index if not exists ix_proveedor_sitioweb_trgm on proveedor using gin (upper(sitioweb) gin_trgm_ops);
+    create index if not exists ix_proveedor_telefono_trgm on proveedor using gin (upper(telefono) gin_trgm_ops);
+    create index if not exists ix_proveedor_tipoproveedor_trgm on proveedor using gin (upper(tipoproveedor) gin_trgm_ops);
+exception
+    when insufficient_privilege or undefined_file then
+        raise notice 'ndices de trigramas omitidos: no se pudo crear la extensin pg_trgm (%)', sqlerrm;
+end
+$$;
+
+-- Bsqueda de productos por palabras (ver BusquedaProductos)
+create index if not exists ix_producto_busqueda on producto using gin (to_tsvector('simple', textoBusqueda));
@@ -0,0 +1,48 @@
+-- Reservas de stock para ventas pendientes (ver ReservasStock).
+--
+-- producto.stockReservado suma las reservas activas del producto; el disponible
+-- es stockActual - stockReservado. Las reservas no se borran: quedan como
+-- confirmadas, liberadas o vencidas.
+
+alter table producto add column if not exists stockReservado numeric(12, 2) default 0 not null;
+
+create table if not exists reserva (
+    id bigserial not null,
+    cantidad numeric(12, 2),
+    creada timestamp,
+    estado varchar(10),
+    finalizada timestamp,
+    observaciones varchar(200),
+    vence timestamp,
+    cliente_codigo varchar(15),
+    movimiento_id int8,
+    producto_codigo varchar(15) not null,
+    primary key (id)
+);
+
+-- Las activas ya vencidas, para la revisin peridica
+create index if not exists ix_reserva_estado_vence on reserva (estado, vence);
+-- Las activas de un producto, para vencerlas al reservar y para la conciliacin nocturna
+create index if not exists ix_reserva_producto_estado on reserva (producto_codigo, estado);
+
+-- Restricciones: "add constraint" no admite "if not exists"
+do $$
+begin
+    alter table reserva add constraint fk_reserva_producto
+        foreign key (producto_codigo) references producto;
+exception when duplicate_object then null;
+end $$;
+
+do $$
+begin
+    alter table reserva add constraint fk_reserva_cliente
+        foreign key (cliente_codigo) references cliente;
+exception when duplicate_object then null;
+end $$;
+
+do $$
+begin
+    alter table reserva add constraint fk_reserva_movimiento
+        foreign key (movimiento_id) references movimiento;
+exception when duplicate_object then null;
+end $$;
@@ -0,0 +1,407 @@
+package com.abrasa.Inventario.carga;
+
+import com.abrasa.Inventario.modelo.Movimiento;
+import com.abrasa.Inventario.modelo.Producto;
+import com.abrasa.Inventario.modelo.Proveedor;
+import com.abrasa.Inventario.modelo.TipoMovimiento;
+import com.abrasa.Inventario.pruebas.BaseDatosPruebas;
+import com.abrasa.Inventario.servicios.LibroStock;
+import org.htmlunit.WebWindow;
+import org.htmlunit.html.DomElement;
+import org.openxava.jpa.XPersistence;
+import org.openxava.tests.ModuleTestBase;
+import org.openxava.util.AppServer;
+import org.openxava.util.DBServer;
+import org.openxava.util.XavaPreferences;
+import org.openxava.util.XavaResources;
+
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Prueba de carga: N empleados de almacén virtuales trabajando a la vez durante
+ * un tiempo fijo, cada uno registrando entradas y salidas, recorriendo la lista
+ * de productos e imprimiendo el catálogo. Al final muestra el rendimiento y las
+ * latencias p50/p99 de cada operación y verifica que el stock de cada producto
+ * sea la suma de sus movimientos, que es lo primero que se rompe si se pierde
+ * una actualización.
+ *
+ * Arranca la aplicación con DBServer y AppServer, como run/Inventario, y cada empleado la
+ * usa por HTTP con dos navegadores de ModuleTestBase (HtmlUnit), uno en el módulo
+ * Movimiento y otro en Producto, cada uno con su sesión: las latencias incluyen
+ * Tomcat, OpenXava, la caché, el pool de conexiones y la ColaReportes. También el
+ * JavaScript que ejecuta HtmlUnit, que compite por la CPU con el servidor en la
+ * misma JVM: para medir la aplicación, más empleados que núcleos no sirve.
+ *
+ * Los datos no van al HSQLDB de DBServer sino a la base PostgreSQL de context.xml
+ * (inventario_abrasa), que tiene que existir y estar sin productos: antes de
+ * arrancar la aplicación se migra y se carga el catálogo con BaseDatosPruebas. Con otro
+ * puerto que el 8080 hay que cambiarlo también en xava-junit.properties.
+ *
+ *   mvn package -DskipTests && mvn test-compile exec:java -Dexec.classpathScope=test \
+ *       -Dexec.mainClass=com.abrasa.Inventario.carga.CargaAlmacen -Dexec.args="16 60 200"
+ *
+ * Argumentos: empleados (16), segundos (60), productos (200).
+ */
+public class CargaAlmacen {
+
+    private static final String APLICACION = "Inventario";
+
+    // La mitad de los movimientos cae sobre estos pocos productos, para que haya contención
+    private static final int PRODUCTOS_MUY_USADOS = 5;
+    private static final int FILAS_POR_PAGINA = 10;
+    private static final int STOCK_INICIAL = 100;
+
+    private enum Operacion { ENTRADA, SALIDA, CONSULTA, IMPRESION }
+
+    private enum Resultado { HECHA, RECHAZADA, FALLIDA }
+
+    private static final Map<Operacion, Queue<Long>> latencias = new EnumMap<>(Operacion.class);
+    private static final Map<Operacion, LongAdder> rechazos = new EnumMap<>(Operacion.class);
+    private static final Map<Operacion, LongAdder> errores = new EnumMap<>(Operacion.class);
+
+    static {
+        for (Operacion operacion : Operacion.values()) {
+            latencias.put(operacion, new ConcurrentLinkedQueue<>());
+            rechazos.put(operacion, new LongAdder());
+            errores.put(operacion, new LongAdder());
+        }
+    }
+
+    private static int productos;
+
+    public static void main(String[] args) throws Exception {
+        int empleados = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int segundos = args.length > 1 ? Integer.parseInt(args[1]) : 60;
+        productos = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+
+        BaseDatosPruebas.aplicarMigraciones();
+        BaseDatosPruebas.usarBaseAplicacion();
+        cargarCatalogo();
+        arrancarAplicacion();
+
+        // Uno tras otro: al abrir, ModuleTestBase borra las preferencias del usuario
+        List<PantallaMovimientos> movimientos = new ArrayList<>();
+        List<PantallaProductos> catalogos = new ArrayList<>();
+        for (int i = 0; i < empleados; i++) {
+            movimientos.add(new PantallaMovimientos());
+            movimientos.get(i).abrir();
+            catalogos.add(new PantallaProductos());
+            catalogos.get(i).abrir();
+        }
+
+        System.out.printf("%d empleados durante %d s sobre %d productos%n", empleados, segundos, productos);
+        ExecutorService almacen = Executors.newFixedThreadPool(empleados);
+        CountDownLatch largada = new CountDownLatch(1);
+        long inicio = System.nanoTime();
+        long fin = inicio + TimeUnit.SECONDS.toNanos(segundos);
+        List<Future<?>> turnos = new ArrayList<>();
+        for (int i = 0; i < empleados; i++) {
+            PantallaMovimientos pantallaMovimientos = movimientos.get(i);
+            PantallaProductos catalogo = catalogos.get(i);
+            long semilla = i;
+            turnos.add(almacen.submit(() -> {
+                largada.await();
+                trabajar(pantallaMovimientos, catalogo, new Random(semilla), fin);
+                return null;
+            }));
+        }
+        largada.countDown();
+        for (Future<?> turno : turnos) {
+            turno.get();
+        }
+        almacen.shutdown();
+        double transcurrido = (System.nanoTime() - inicio) / 1e9;
+
+        informar(transcurrido);
+        // setUp() de ModuleTestBase deja este hilo con la unidad "junit" sin más
+        BaseDatosPruebas.usarBaseAplicacion();
+        int descuadres = verificarStock();
+        XPersistence.commit();
+
+        // El hilo de Tomcat no termina solo
+        System.exit(descuadres > 0 ? 1 : 0);
+    }
+
+    // ================= Empleados =================
+
+    private static void trabajar(PantallaMovimientos movimientos, PantallaProductos catalogo, Random azar, long fin) {
+        while (System.nanoTime() < fin) {
+            int dado = azar.nextInt(100);
+            Operacion operacion = dado < 35 ? Operacion.ENTRADA
+                    : dado < 60 ? Operacion.SALIDA
+                    : dado < 95 ? Operacion.CONSULTA
+                    : Operacion.IMPRESION;
+            long inicio = System.nanoTime();
+            Resultado resultado;
+            try {
+                resultado = ejecutar(operacion, movimientos, catalogo, azar);
+            }
+            catch (Exception | AssertionError ex) {
+                // Las comprobaciones de ModuleTestBase fallan con AssertionFailedError
+                System.err.println(operacion + ": " + ex);
+                resultado = Resultado.FALLIDA;
+            }
+            switch (resultado) {
+                case HECHA:
+                    latencias.get(operacion).add(System.nanoTime() - inicio);
+                    break;
+                case RECHAZADA:
+                    rechazos.get(operacion).increment();
+                    break;
+                default:
+                    errores.get(operacion).increment();
+            }
+        }
+    }
+
+    private static Resultado ejecutar(Operacion operacion, PantallaMovimientos movimientos,
+                                      PantallaProductos catalogo, Random azar) throws Exception {
+        switch (operacion) {
+            case ENTRADA:
+                return movimientos.registrar(TipoMovimiento.ENTRADA, elegirProducto(azar), 1 + azar.nextInt(20));
+            case SALIDA:
+                return movimientos.registrar(TipoMovimiento.SALIDA, elegirProducto(azar), 1 + azar.nextInt(10));
+            case CONSULTA:
+                int paginas = Math.max(2, productos / FILAS_POR_PAGINA);
+                return catalogo.consultarPagina(azar.nextInt(paginas), paginas);
+            default:
+                return catalogo.imprimirCatalogo();
+        }
+    }
+
+    private static String elegirProducto(Random azar) {
+        int limite = azar.nextBoolean() ? Math.min(PRODUCTOS_MUY_USADOS, productos) : productos;
+        return "P" + azar.nextInt(limite);
+    }
+
+    /**
+     * Un navegador con la sesión iniciada en un módulo.
+     */
+    private abstract static class Pantalla extends ModuleTestBase {
+
+        private final String modulo;
+
+        Pantalla(String modulo) {
+            super("carga", APLICACION, modulo);
+            this.modulo = modulo;
+        }
+
+        void abrir() throws Exception {
+            setUp();
+            login("admin", "admin");
+        }
+
+        /**
+         * @param rechazo parte del error que es un rechazo esperado (falta de stock,
+         *                cola llena) y no un fallo; null si no hay ninguno.
+         */
+        Resultado resultado(String rechazo) {
+            DomElement tabla = getHtmlPage().getElementById("ox_" + APLICACION + "_" + modulo + "__errors_table");
+            String error = tabla == null ? "" : tabla.asNormalizedText().trim();
+            if (error.isEmpty()) {
+                return Resultado.HECHA;
+            }
+            if (rechazo != null && error.contains(rechazo)) {
+                return Resultado.RECHAZADA;
+            }
+            System.err.println(modulo + ": " + error);
+            return Resultado.FALLIDA;
+        }
+    }
+
+    /**
+     * El módulo Movimiento: alta de un movimiento, como lo carga el empleado.
+     */
+    private static class PantallaMovimientos extends Pantalla {
+
+        private static final DateTimeFormatter FECHA = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+
+        PantallaMovimientos() {
+            super("Movimiento");
+        }
+
+        Resultado registrar(TipoMovimiento tipo, String codigoProducto, int cantidad) throws Exception {
+            execute("CRUD.new");
+            setValue("producto.codigo", codigoProducto);
+            setValue("tipoMovimiento", String.valueOf(tipo.ordinal()));
+            setValue("fecha", LocalDate.now().format(FECHA));
+            setValue("cantidad", String.valueOf(cantidad));
+            if (tipo == TipoMovimiento.ENTRADA) {
+                setValue("proveedor.codigo", "PROV-1");
+            }
+            execute("CRUD.save");
+            return resultado(LibroStock.SIN_STOCK_DISPONIBLE);
+        }
+    }
+
+    /**
+     * El módulo Producto: la lista paginada con su conteo (showCountInList) y el
+     * catálogo en PDF, pedido a la ColaReportes.
+     */
+    private static class PantallaProductos extends Pantalla {
+
+        PantallaProductos() {
+            super("Producto");
+        }
+
+        // La página que se está viendo no tiene vínculo
+        private int paginaActual;
+
+        Resultado consultarPagina(int pagina, int paginas) throws Exception {
+            paginaActual = pagina == paginaActual ? (pagina + 1) % paginas : pagina;
+            execute("List.goPage", "page=" + (paginaActual + 1));
+            return resultado(null);
+        }
+
+        /**
+         * Pide el catálogo y vuelve a pulsar descargar hasta que el PDF está listo.
+         */
+        Resultado imprimirCatalogo() throws Exception {
+            execute("Producto.imprimirReporteProductos");
+            while (true) {
+                Resultado resultado = resultado(XavaResources.getString(new Locale("es"), "cola_reportes_llena"));
+                if (resultado != Resultado.HECHA || "application/pdf".equals(tipoContenidoPopup())) {
+                    return resultado;
+                }
+                Thread.sleep(100);
+                execute("Producto.descargarReporte");
+            }
+        }
+
+        private String tipoContenidoPopup() {
+            // Sin popup no hay ventanas más allá de la del módulo
+            List<WebWindow> ventanas = getWebClient().getWebWindows();
+            return ventanas.size() > 1
+                    ? ventanas.get(ventanas.size() - 1).getEnclosedPage().getWebResponse().getContentType()
+                    : null;
+        }
+    }
+
+    // ================= Resultados =================
+
+    private static void informar(double segundos) {
+        System.out.printf("%n%-10s %8s %9s %8s %9s %9s %9s %9s%n",
+                "operación", "ok", "rechazos", "errores", "ops/s", "p50 ms", "p99 ms", "máx ms");
+        long total = 0;
+        for (Operacion operacion : Operacion.values()) {
+            long[] muestras = latencias.get(operacion).stream().mapToLong(Long::longValue).sorted().toArray();
+            total += muestras.length;
+            System.out.printf("%-10s %8d %9d %8d %9.1f %9.2f %9.2f %9.2f%n",
+                    operacion.name().toLowerCase(), muestras.length,
+                    rechazos.get(operacion).sum(), errores.get(operacion).sum(),
+                    muestras.length / segundos,
+                    percentil(muestras, 50), percentil(muestras, 99),
+                    muestras.length == 0 ? 0 : muestras[muestras.length - 1] / 1e6);
+        }
+        System.out.printf("%-10s %8d %9s %8s %9.1f%n", "total", total, "", "", total / segundos);
+    }
+
+    private static double percentil(long[] ordenadas, int percentil) {
+        if (ordenadas.length == 0) {
+            return 0;
+        }
+        int posicion = (int) Math.ceil(percentil / 100.0 * ordenadas.length) - 1;
+        return ordenadas[Math.max(posicion, 0)] / 1e6;
+    }
+
+    /**
+     * Compara el stock de cada producto con sus movimientos y la marca bajoMinimo
+     * con el stock resultante.
+     *
+     * @return cantidad de productos descuadrados.
+     */
+    private static int verificarStock() {
+        List<Object[]> filas = XPersistence.getManager()
+                .createQuery(
+                        "select p.codigo, p.stockActual, p.stockMinimo, p.bajoMinimo, " +
+                                "coalesce(sum(case when m.tipoMovimiento = :entrada then m.cantidad else -m.cantidad end), 0) " +
+                                "from Producto p left join Movimiento m on m.producto = p " +
+                                "group by p.codigo, p.stockActual, p.stockMinimo, p.bajoMinimo",
+                        Object[].class)
+                .setParameter("entrada", TipoMovimiento.ENTRADA)
+                .getResultList();
+
+        int descuadres = 0;
+        for (Object[] fila : filas) {
+            BigDecimal stock = (BigDecimal) fila[1];
+            BigDecimal minimo = (BigDecimal) fila[2];
+            boolean bajoMinimo = (Boolean) fila[3];
+            BigDecimal movimientos = (BigDecimal) fila[4];
+            if (stock.compareTo(movimientos) != 0 || bajoMinimo != stock.compareTo(minimo) < 0) {
+                descuadres++;
+                System.err.printf("%s: stock %s, movimientos %s, bajoMinimo %s%n", fila[0], stock, movimientos, bajoMinimo);
+            }
+        }
+        System.out.printf("%nStock verificado en %d productos: %d descuadrados%n", filas.size(), descuadres);
+        return descuadres;
+    }
+
+    // ================= Aplicación =================
+
+    /**
+     * El catálogo de BaseDatosPruebas con una entrada inicial por producto,
+     * registrada como movimiento para que entre en la verificación final.
+     */
+    private static void cargarCatalogo() {
+        long existentes = XPersistence.getManager()
+                .createQuery("select count(p) from Producto p", Long.class)
+                .getSingleResult();
+        if (existentes > 0) {
+            throw new IllegalStateException("La base de context.xml ya tiene " + existentes +
+                    " productos: la prueba de carga necesita una base sin datos");
+        }
+        BaseDatosPruebas.cargarProductos(productos);
+
+        EntityManager manager = XPersistence.getManager();
+        Proveedor proveedor = manager.find(Proveedor.class, "PROV-1");
+        for (int i = 0; i < productos; i++) {
+            Movimiento movimiento = new Movimiento();
+            movimiento.setProducto(manager.find(Producto.class, "P" + i));
+            movimiento.setProveedor(proveedor);
+            movimiento.setTipoMovimiento(TipoMovimiento.ENTRADA);
+            movimiento.setCantidad(new BigDecimal(STOCK_INICIAL));
+            manager.persist(movimiento);
+        }
+        XPersistence.commit();
+    }
+
+    private static void arrancarAplicacion() throws Exception {
+        DBServer.start("Inventario-db");
+        Thread servidor = new Thread(() -> {
+            try {
+                AppServer.run(APLICACION);
+            }
+            catch (Exception ex) {
+                ex.printStackTrace();
+            }
+        }, "AppServer");
+        servidor.setDaemon(true);
+        servidor.start();
+
+        // AppServer.run no vuelve: se espera a que la aplicación responda
+        URL inicio = new URL("http://localhost:" + XavaPreferences.getInstance().getApplicationPort() + "/" + APLICACION + "/");
+        for (int intento = 0; ; intento++) {
+            try {
+                HttpURLConnection conexion = (HttpURLConnection) inicio.openConnection();
+                if (conexion.getResponseCode() < 500) {
+                    return;
+                }
+            }
+            catch (IOException ex) {
+                if (intento == 600) {
+                    throw ex;
+                }
+            }
+            Thread.sleep(200);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.abrasa.Inventario.listas;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Reescritura de las select de las listas para paginar por clave, con la forma en
+ * que las arma JPATabProvider.
+ */
+public class PaginacionTest {
+
+    private static final List<String> CLAVE_PRODUCTO = Collections.singletonList("e.codigo");
+    private static final List<String> CLAVE_MOVIMIENTO = Arrays.asList("e.fecha", "e.id");
+
+    @Test
+    public void sinOrdenSeOrdenaPorLaClave() {
+        Paginacion paginacion = Paginacion.analizar(
+                "select e.codigo, e.nombre from Producto e", CLAVE_PRODUCTO);
+
+        assertEquals("select e.codigo, e.nombre from Producto e order by e.codigo asc", paginacion.ordenada);
+        assertEquals("select e.codigo, e.nombre from Producto e where ((e.codigo > :clave0)) order by e.codigo asc",
+                paginacion.desdeClave);
+        assertArrayEquals(new int[] {0}, paginacion.columnas);
+    }
+
+    @Test
+    public void ordenPorElPrincipioDeLaClaveSeCompletaEnElMismoSentido() {
+        Paginacion paginacion = Paginacion.analizar(
+                "select e.producto.nombre, e.fecha, e.cantidad, e.id from Movimiento e order by e.fecha desc",
+                CLAVE_MOVIMIENTO);
+
+        assertEquals("select e.producto.nombre, e.fecha, e.cantidad, e.id from Movimiento e "
+                + "order by e.fecha desc, e.id desc", paginacion.ordenada);
+        assertEquals("select e.producto.nombre, e.fecha, e.cantidad, e.id from Movimiento e "
+                        + "where e.fecha <= :clave0 and ((e.fecha < :clave0) or (e.fecha = :clave0 and e.id < :clave1)) "
+                        + "order by e.fecha desc, e.id desc",
+                paginacion.desdeClave);
+        assertArrayEquals(new int[] {1, 3}, paginacion.columnas);
+    }
+
+    @Test
+    public void laCondicionDeLaListaSeConserva() {
+        Paginacion paginacion = Paginacion.analizar(
+                "select e.codigo, e.nombre from Producto e where e.activo = :p0 order by e.codigo",
+                CLAVE_PRODUCTO);
+
+        assertEquals("select e.codigo, e.nombre from Producto e where e.activo = :p0 order by e.codigo asc",
+                paginacion.ordenada);
+        assertEquals("select e.codigo, e.nombre from Producto e where (e.activo = :p0) and ((e.codigo > :clave0)) "
+                + "order by e.codigo asc", paginacion.desdeClave);
+    }
+
+    @Test
+    public void unaCondicionConOrQuedaEntreParentesis() {
+        Paginacion paginacion = Paginacion.analizar(
+                "select e.codigo, e.nombre from Producto e where upper(e.nombre) like :p0 or upper(e.codigo) like :p1",
+                CLAVE_PRODUCTO);
+
+        // Sin los paréntesis, "a or b and clave" dejaría pasar todas las filas que cumplen a
+        assertEquals("select e.codigo, e.nombre from Producto e "
+                + "where (upper(e.nombre) like :p0 or upper(e.codigo) like :p1) and ((e.codigo > :clave0)) "
+                + "order by e.codigo asc", paginacion.desdeClave);
+    }
+
+    @Test
+    public void lasPalabrasDeUnaSubconsultaNoCuentan() {
+        Paginacion paginacion = Paginacion.analizar(
+                "select e.codigo, e.nombre from Producto e where e.codigo in "
+                        + "(select m.producto.codigo from Movimiento m where m.fecha > :p0 order by m.fecha)",
+                CLAVE_PRODUCTO);
+
+        assertEquals("select e.codigo, e.nombre from Producto e where (e.codigo in "
+                + "(select m.producto.codigo from Movimiento m where m.fecha > :p0 order by m.fecha)) "
+                + "and ((e.codigo > :clave0)) order by e.codigo asc", paginacion.desdeClave);
+    }
+
+    @Test
+    public void conOtroOrdenSePaginaComoSiempre() {
+        assertNull(Paginacion.analizar("select e.codigo, e.nombre from Producto e order by e.nombre", CLAVE_PRODUCTO));
+        assertNull(Paginacion.analizar("select e.codigo, e.nombre from Producto e order by e.codigo, e.nombre",
+                CLAVE_PRODUCTO));
+        assertNull(Paginacion.analizar("select e.fecha, e.id from Movimiento e order by e.id",
+                CLAVE_MOVIMIENTO));
+        assertNull(Paginacion.analizar("select e.fecha, e.id from Movimiento e order by e.fecha desc, e.id asc",
+                CLAVE_MOVIMIENTO));
+    }
+
+    @Test
+    public void conAgrupamientoSinClaveEnLasColumnasOSinClavesNoSePagina() {
+        assertNull(Paginacion.analizar("select e.tipo, count(e) from Producto e group by e.tipo", CLAVE_PRODUCTO));
+        assertNull(Paginacion.analizar("select e.nombre from Producto e", CLAVE_PRODUCTO));
+        assertNull(Paginacion.analizar("select e.nombre from Cliente e", null));
+    }
+}
@@ -0,0 +1,192 @@
+package com.abrasa.Inventario.pruebas;
+
+import com.abrasa.Inventario.modelo.Categoria;
+import com.abrasa.Inventario.modelo.Producto;
+import com.abrasa.Inventario.modelo.Proveedor;
+import com.abrasa.Inventario.servicios.MigracionesEsquema;
+import org.apache.tomcat.dbcp.dbcp2.BasicDataSource;
+import org.hibernate.Session;
+import org.openxava.jpa.XPersistence;
+import org.openxava.util.DBServer;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Base de datos de los benchmarks (src/jmh) y de la prueba de carga, siempre a
+ * través de la unidad de persistencia "junit", y el catálogo con que la cargan.
+ *
+ * Los benchmarks usan el HSQLDB embebido que arranca DBServer, igual que
+ * run/Inventario. JMH ejecuta cada benchmark en su propia JVM, así que cada uno
+ * arranca el servidor y recrea las tablas desde cero.
+ *
+ * La prueba de carga usa la base del Resource de context.xml, la misma que toma
+ * la aplicación al arrancar con AppServer, con el esquema de las migraciones.
+ */
+public class BaseDatosPruebas {
+
+    private static final String URL = "jdbc:hsqldb:hsql://localhost:1666";
+
+    private static final String CONTEXTO = "src/main/webapp/META-INF/context.xml";
+    private static final String RECURSO = "jdbc/InventarioAbrasaDS";
+
+    private static boolean iniciada;
+
+    private BaseDatosPruebas() {
+    }
+
+    public static synchronized void iniciar() throws Exception {
+        if (iniciada) {
+            return;
+        }
+        DBServer.start("Inventario-benchmark");
+        esperarServidor();
+        usarEnEsteHilo();
+        // Crea las tablas
+        XPersistence.getManager();
+        XPersistence.commit();
+        iniciada = true;
+    }
+
+    /**
+     * XPersistence guarda la unidad de persistencia por hilo y JMH puede cambiar de hilo
+     * entre iteraciones: cada estado lo llama en su @Setup(Level.Iteration).
+     */
+    public static void usarEnEsteHilo() {
+        Map<String, Object> propiedades = new HashMap<>();
+        propiedades.put("hibernate.connection.username", "sa");
+        propiedades.put("hibernate.hbm2ddl.auto", "create");
+        propiedades.put("hibernate.jdbc.batch_size", "50");
+        XPersistence.setPersistenceUnit("junit");
+        XPersistence.setPersistenceUnitProperties(propiedades);
+    }
+
+    /**
+     * Apunta la unidad "junit" de este hilo a la base de context.xml, sin tocar
+     * el esquema: lo crean las migraciones (ver aplicarMigraciones).
+     */
+    public static void usarBaseAplicacion() throws Exception {
+        Element recurso = leerRecurso();
+        Map<String, Object> propiedades = new HashMap<>();
+        propiedades.put("hibernate.connection.url", recurso.getAttribute("url"));
+        propiedades.put("hibernate.connection.username", recurso.getAttribute("username"));
+        propiedades.put("hibernate.connection.password", recurso.getAttribute("password"));
+        propiedades.put("hibernate.jdbc.batch_size", "50");
+        XPersistence.setPersistenceUnit("junit");
+        XPersistence.setPersistenceUnitProperties(propiedades);
+    }
+
+    /**
+     * Lleva la base de context.xml a la última migración, como hace la aplicación
+     * al arrancar, para poder cargarla antes de levantar el servidor.
+     */
+    public static void aplicarMigraciones() throws Exception {
+        Element recurso = leerRecurso();
+        try (BasicDataSource dataSource = new BasicDataSource()) {
+            dataSource.setDriverClassName(recurso.getAttribute("driverClassName"));
+            dataSource.setUrl(recurso.getAttribute("url"));
+            dataSource.setUsername(recurso.getAttribute("username"));
+            dataSource.setPassword(recurso.getAttribute("password"));
+            MigracionesEsquema.aplicar(dataSource);
+        }
+    }
+
+    private static Element leerRecurso() throws Exception {
+        NodeList recursos = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                .parse(CONTEXTO)
+                .getElementsByTagName("Resource");
+        for (int i = 0; i < recursos.getLength(); i++) {
+            Element recurso = (Element) recursos.item(i);
+            if (RECURSO.equals(recurso.getAttribute("name"))) {
+                return recurso;
+            }
+        }
+        throw new IllegalStateException("No está el Resource " + RECURSO + " en " + CONTEXTO);
+    }
+
+    /**
+     * Productos P0..P(n-1) con stock inicial 0 y mínimo 5.
+     */
+    public static void cargarProductos(int cantidad) {
+        Categoria categoria = new Categoria();
+        categoria.setNombre("Fertilizantes");
+        XPersistence.getManager().persist(categoria);
+
+        Proveedor proveedor = new Proveedor();
+        proveedor.setCodigo("PROV-1");
+        proveedor.setNombreLegal("Agroinsumos S.A.");
+        proveedor.setNombreComercial("Agroinsumos");
+        proveedor.setTipoProveedor("Agroquímicos");
+        proveedor.setTelefono("2222-2222");
+        XPersistence.getManager().persist(proveedor);
+
+        for (int i = 0; i < cantidad; i++) {
+            Producto producto = new Producto();
+            producto.setCodigo("P" + i);
+            producto.setNombre("Producto " + i);
+            producto.setTipo("Fertilizante");
+            producto.setCategoria(categoria);
+            producto.setProveedor(proveedor);
+            producto.setUnidadMedida("saco");
+            producto.setStockMinimo(new BigDecimal("5"));
+            producto.setPrecioCompra(BigDecimal.ONE);
+            producto.setPrecioVenta(BigDecimal.TEN);
+            XPersistence.getManager().persist(producto);
+            if (i % 500 == 0) {
+                XPersistence.getManager().flush();
+                XPersistence.getManager().clear();
+                categoria = XPersistence.getManager().find(Categoria.class, categoria.getId());
+                proveedor = XPersistence.getManager().find(Proveedor.class, proveedor.getCodigo());
+            }
+        }
+        XPersistence.commit();
+    }
+
+    /**
+     * Movimientos de entrada repartidos entre los productos, insertados por JDBC
+     * (para llegar al millón sin pasar por el contexto de persistencia).
+     */
+    public static void cargarMovimientos(int cantidad, int productos) {
+        XPersistence.getManager().unwrap(Session.class).doWork(conexion -> {
+            try (PreparedStatement ps = conexion.prepareStatement(
+                    "insert into movimiento (fecha, tipoMovimiento, cantidad, observaciones, producto_codigo, proveedor_codigo) " +
+                            "values (?, 'ENTRADA', 1, null, ?, 'PROV-1')")) {
+                LocalDate inicio = LocalDate.of(2024, 1, 1);
+                for (int i = 0; i < cantidad; i++) {
+                    ps.setDate(1, Date.valueOf(inicio.plusDays(i % 730)));
+                    ps.setString(2, "P" + (i % productos));
+                    ps.addBatch();
+                    if (i % 1000 == 999 || i == cantidad - 1) {
+                        ps.executeBatch();
+                    }
+                }
+            }
+        });
+        XPersistence.commit();
+    }
+
+    private static void esperarServidor() throws Exception {
+        // DBServer arranca el servidor en otro hilo
+        for (int intento = 0; ; intento++) {
+            try (Connection conexion = DriverManager.getConnection(URL, "sa", "")) {
+                return;
+            }
+            catch (SQLException ex) {
+                if (intento == 100) {
+                    throw ex;
+                }
+                Thread.sleep(100);
+            }
+        }
+    }
+}
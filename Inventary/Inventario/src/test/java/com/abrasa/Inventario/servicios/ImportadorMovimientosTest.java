@@ -0,0 +1,123 @@
+package com.abrasa.Inventario.servicios;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Lectura de los números y del CSV al importar movimientos, sin tocar la base.
+ */
+public class ImportadorMovimientosTest {
+
+    private static ImportadorMovimientos conSeparador(char separadorDecimal) {
+        ImportadorMovimientos importador = new ImportadorMovimientos();
+        importador.usarSeparadorDecimal(separadorDecimal);
+        return importador;
+    }
+
+    private static List<String[]> registros(String csv, String separador) {
+        List<String[]> registros = new ArrayList<>();
+        Iterator<String[]> lector = ImportadorMovimientos.leerCsv(csv.getBytes(StandardCharsets.UTF_8), null, separador);
+        lector.forEachRemaining(registros::add);
+        return registros;
+    }
+
+    @Test
+    public void losSeparadoresDeMilesSeRechazan() {
+        ImportadorMovimientos punto = conSeparador('.');
+        ImportadorMovimientos coma = conSeparador(',');
+
+        // Mil o uno coma veinticinco según quien lo escriba: no se adivina
+        assertThrows(IllegalArgumentException.class, () -> punto.leerCantidad("1,250"));
+        assertThrows(IllegalArgumentException.class, () -> coma.leerCantidad("1.000"));
+        assertThrows(IllegalArgumentException.class, () -> coma.leerCantidad("1.250,50"));
+        assertThrows(IllegalArgumentException.class, () -> punto.leerCostoUnitario("1,250.5"));
+    }
+
+    @Test
+    public void seUsaElSeparadorDecimalIndicado() {
+        assertEquals(new BigDecimal("12.50"), conSeparador(',').leerCantidad("12,5"));
+        assertEquals(new BigDecimal("12.50"), conSeparador('.').leerCantidad("12.5"));
+        assertEquals(new BigDecimal("1000.00"), conSeparador(',').leerCantidad("1000"));
+        assertEquals(new BigDecimal("3.2500"), conSeparador(',').leerCostoUnitario("3,25"));
+
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                () -> conSeparador(',').leerCantidad("12.5"));
+        assertTrue(error.getMessage(), error.getMessage().contains("use , como separador decimal"));
+    }
+
+    @Test
+    public void laCantidadAdmiteDosDecimalesYElCostoCuatro() {
+        ImportadorMovimientos importador = conSeparador('.');
+
+        assertEquals(new BigDecimal("1.25"), importador.leerCantidad("1.2500"));
+        assertThrows(IllegalArgumentException.class, () -> importador.leerCantidad("1.255"));
+        assertEquals(new BigDecimal("10.1234"), importador.leerCostoUnitario("10.1234"));
+        assertThrows(IllegalArgumentException.class, () -> importador.leerCostoUnitario("10.12345"));
+    }
+
+    @Test
+    public void cantidadYCostoFueraDeRango() {
+        ImportadorMovimientos importador = conSeparador('.');
+
+        assertThrows(IllegalArgumentException.class, () -> importador.leerCantidad("0"));
+        assertThrows(IllegalArgumentException.class, () -> importador.leerCantidad("-3"));
+        assertThrows(IllegalArgumentException.class, () -> importador.leerCostoUnitario("-0.5"));
+        assertEquals(new BigDecimal("0.0000"), importador.leerCostoUnitario("0"));
+        assertNull(importador.leerCostoUnitario(null));
+    }
+
+    @Test
+    public void losCamposEntreComillasConservanSeparadoresYSaltosDeLinea() {
+        List<String[]> registros = registros(
+                "fecha;producto;observaciones\r\n"
+                        + "2024-03-01;P1;\"llegó; con \"\"daño\"\"\nen dos sacos\"\r\n"
+                        + "2024-03-02;P2;sin comillas\n", ";");
+
+        assertEquals(3, registros.size());
+        assertArrayEquals(new String[] {"fecha", "producto", "observaciones"}, registros.get(0));
+        assertArrayEquals(new String[] {"2024-03-01", "P1", "llegó; con \"daño\"\nen dos sacos"}, registros.get(1));
+        assertArrayEquals(new String[] {"2024-03-02", "P2", "sin comillas"}, registros.get(2));
+    }
+
+    @Test
+    public void laMarcaDeOrdenDeBytesSeDescarta() {
+        List<String[]> registros = registros("\uFEFFfecha,producto\n", ",");
+
+        assertArrayEquals(new String[] {"fecha", "producto"}, registros.get(0));
+    }
+
+    @Test
+    public void unCampoEntreComillasSinCerrarSeRechaza() {
+        Iterator<String[]> lector = ImportadorMovimientos.leerCsv(
+                "2024-03-01;P1;\"sin cerrar\n".getBytes(StandardCharsets.UTF_8), null, ";");
+
+        assertThrows(IllegalArgumentException.class, lector::next);
+    }
+
+    @Test
+    public void unArchivoEnOtraCodificacionSeRechazaEntero() {
+        byte[] latin1 = "2024-03-01;P1;ENTRADA;5;;Camión\n".getBytes(StandardCharsets.ISO_8859_1);
+
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                () -> ImportadorMovimientos.leerCsv(latin1, "UTF-8", ";"));
+        assertTrue(error.getMessage(), error.getMessage().contains("UTF-8"));
+
+        Iterator<String[]> lector = ImportadorMovimientos.leerCsv(latin1, "ISO-8859-1", ";");
+        assertEquals("Camión", lector.next()[5]);
+    }
+
+    @Test
+    public void elSeparadorDelCsvEsUnSoloCaracter() {
+        byte[] csv = "a;b\n".getBytes(StandardCharsets.UTF_8);
+
+        assertThrows(IllegalArgumentException.class, () -> ImportadorMovimientos.leerCsv(csv, null, ";;"));
+        assertThrows(IllegalArgumentException.class, () -> ImportadorMovimientos.leerCsv(csv, null, null));
+    }
+}